@@ -0,0 +1,45 @@
+package main.fixtures;
+
+import java.util.Random;
+
+/**
+ * Made up class hierarchies, for the benchmarks and the performance tests to run on instead of a real project.
+ * <p>
+ * Always built from the same seed, so every run and every version being compared gets the same hierarchy.
+ */
+public class SyntheticHierarchy {
+    public enum Shape {
+        // Every class extends the one before it.
+        CHAIN,
+        // Every class extends the first.
+        FAN_OUT,
+        // Lots of small separate hierarchies, like most real projects.
+        FOREST
+    }
+
+    public static final long SEED = 42;
+    private static final int TREE_SIZE = 12;
+
+    /**
+     * @return The index of what each class extends, or -1.
+     */
+    public static int[] parents(Shape shape, int size) {
+        var random = new Random(SEED);
+        int[] parents = new int[size];
+        for (int i = 0; i < size; i++) {
+            switch (shape) {
+                case CHAIN:
+                    parents[i] = i - 1;
+                    break;
+                case FAN_OUT:
+                    parents[i] = i == 0 ? -1 : 0;
+                    break;
+                default:
+                    int treeStart = i - i % TREE_SIZE;
+                    parents[i] = i == treeStart ? -1 : treeStart + random.nextInt(i - treeStart);
+                    break;
+            }
+        }
+        return parents;
+    }
+}
@@ -0,0 +1,53 @@
+package main.benchmarks;
+
+import main.fixtures.SyntheticHierarchy;
+import main.util.ArrowRouter;
+import main.util.ForestLayout;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing every arrow on the plane, which Background does for every extends clause every frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArrowBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Param({"CHAIN", "FAN_OUT", "FOREST"})
+    public SyntheticHierarchy.Shape shape;
+
+    private SyntheticGraph graph;
+    private Rectangle[] bounds;
+    private final int[] arrow = new int[4];
+
+    @Setup
+    public void setUp() {
+        graph = new SyntheticGraph(shape, size);
+        // Laid out for real, so the arrows take the same mix of routes they would on the plane.
+        var layout = new ForestLayout(100, 2.0);
+        for (int i = 0; i < graph.size; i++) layout.addNode(graph.widths[i], graph.heights[i]);
+        for (int i = 0; i < graph.size; i++) {
+            if (graph.parents[i] != -1) layout.addEdge(i, graph.parents[i]);
+        }
+        var positions = layout.compute();
+        bounds = new Rectangle[graph.size];
+        for (int i = 0; i < graph.size; i++) {
+            bounds[i] = new Rectangle((int) positions[i].x, (int) positions[i].y, (int) graph.widths[i], (int) graph.heights[i]);
+        }
+    }
+
+    @Benchmark
+    public void routeAll(Blackhole blackhole) {
+        for (int i = 0; i < graph.size; i++) {
+            if (graph.parents[i] == -1) continue;
+            ArrowRouter.route(bounds[i], bounds[graph.parents[i]], arrow);
+            blackhole.consume(arrow[0] + arrow[1] + arrow[2] + arrow[3]);
+        }
+    }
+}
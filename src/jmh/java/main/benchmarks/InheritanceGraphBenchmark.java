@@ -0,0 +1,67 @@
+package main.benchmarks;
+
+import main.fixtures.SyntheticHierarchy;
+import main.util.InheritanceGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The graph side of EditorWindow.rebuildExtendsList, without the PSI resolving that goes with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InheritanceGraphBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Param({"CHAIN", "FAN_OUT", "FOREST"})
+    public SyntheticHierarchy.Shape shape;
+
+    private SyntheticGraph graph;
+    private List<List<String>> parentNames;
+    private InheritanceGraph<Integer> built;
+    private Integer[] nodes;
+    private boolean detached = false;
+
+    @Setup
+    public void setUp() {
+        graph = new SyntheticGraph(shape, size);
+        nodes = new Integer[graph.size];
+        parentNames = new ArrayList<>();
+        for (int i = 0; i < graph.size; i++) {
+            nodes[i] = i;
+            parentNames.add(graph.parents[i] == -1 ? Collections.emptyList() : List.of(graph.names[graph.parents[i]]));
+        }
+        built = rebuild();
+    }
+
+    /**
+     * Every window rebuilding its extends list, like when loading completes. Done in file order, so children
+     * are often added before their parents, as they are for real.
+     */
+    @Benchmark
+    public InheritanceGraph<Integer> rebuild() {
+        var result = new InheritanceGraph<Integer>();
+        for (int i = graph.size - 1; i >= 0; i--) {
+            result.put(nodes[i], graph.names[i]);
+            result.setParents(nodes[i], parentNames.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * One class in the middle of the graph gaining or losing its superclass, like after an edit.
+     */
+    @Benchmark
+    public List<Integer> reparentOne() {
+        int node = graph.size / 2;
+        detached = !detached;
+        built.setParents(nodes[node], detached ? Collections.emptyList() : parentNames.get(node));
+        return built.getChildren(nodes[Math.max(0, graph.parents[node])]);
+    }
+}
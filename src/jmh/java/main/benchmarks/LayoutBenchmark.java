@@ -0,0 +1,78 @@
+package main.benchmarks;
+
+import main.fixtures.SyntheticHierarchy;
+import main.util.ForceLayout;
+import main.util.ForestLayout;
+import main.util.LayeredLayout;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.geom.Point2D;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long the layouts take, as run by Layout and ForceLayoutRunner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LayoutBenchmark {
+    private static final double SPACING = 100;
+    private static final double ASPECT = 2.0;
+    private static final int FORCE_STEPS = 10;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Param({"CHAIN", "FAN_OUT", "FOREST"})
+    public SyntheticHierarchy.Shape shape;
+
+    private SyntheticGraph graph;
+
+    @Setup
+    public void setUp() {
+        graph = new SyntheticGraph(shape, size);
+    }
+
+    /**
+     * The hierarchy layout, with each tree on its own and then packed together.
+     */
+    @Benchmark
+    public Point2D.Double[] forest() {
+        var layout = new ForestLayout(SPACING, ASPECT);
+        for (int i = 0; i < graph.size; i++) layout.addNode(graph.widths[i], graph.heights[i]);
+        for (int i = 0; i < graph.size; i++) {
+            if (graph.parents[i] != -1) layout.addEdge(i, graph.parents[i]);
+        }
+        return layout.compute();
+    }
+
+    /**
+     * The whole graph through one layered layout, which is what each tree in {@link #forest()} costs.
+     */
+    @Benchmark
+    public Point2D.Double[] layered() {
+        var layout = new LayeredLayout(SPACING);
+        for (int i = 0; i < graph.size; i++) layout.addNode(graph.widths[i], graph.heights[i]);
+        for (int i = 0; i < graph.size; i++) {
+            if (graph.parents[i] != -1) layout.addEdge(i, graph.parents[i]);
+        }
+        return layout.compute();
+    }
+
+    /**
+     * The first few steps of the force layout, starting from a grid.
+     */
+    @Benchmark
+    public Point2D.Double[] force() {
+        var layout = new ForceLayout(SPACING);
+        int columns = (int) Math.ceil(Math.sqrt(graph.size));
+        for (int i = 0; i < graph.size; i++) {
+            layout.addNode((i % columns) * 800, (i / columns) * 1000, graph.widths[i], graph.heights[i]);
+        }
+        for (int i = 0; i < graph.size; i++) {
+            if (graph.parents[i] != -1) layout.addEdge(i, graph.parents[i]);
+        }
+        for (int step = 0; step < FORCE_STEPS; step++) layout.step();
+        return layout.getPositions();
+    }
+}
@@ -0,0 +1,35 @@
+package main.benchmarks;
+
+import main.fixtures.SyntheticHierarchy;
+
+import java.util.Random;
+
+/**
+ * A made up class hierarchy, standing in for a project without needing the IDE to load one.
+ * <p>
+ * The hierarchy comes from {@link SyntheticHierarchy}, with window sizes and names made up to go with it.
+ */
+public class SyntheticGraph {
+    public final int size;
+    // The index of what each class extends, or -1.
+    public final int[] parents;
+    public final double[] widths;
+    public final double[] heights;
+    public final String[] names;
+
+    public SyntheticGraph(SyntheticHierarchy.Shape shape, int size) {
+        this.size = size;
+        parents = SyntheticHierarchy.parents(shape, size);
+        widths = new double[size];
+        heights = new double[size];
+        names = new String[size];
+
+        var random = new Random(SyntheticHierarchy.SEED);
+        for (int i = 0; i < size; i++) {
+            names[i] = "com.example.p" + (i / 50) + ".Class" + i;
+            // Roughly what the windows look like: fixed width, height going with how long the file is.
+            widths[i] = 700;
+            heights[i] = 100 + random.nextInt(900);
+        }
+    }
+}
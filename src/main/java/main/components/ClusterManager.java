@@ -0,0 +1,465 @@
+package main.components;
+
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import main.core.Colors;
+import main.core.Core;
+import main.util.MyUtils;
+import main.util.PlaneEvents;
+import main.util.SkylinePacker;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.List;
+import java.util.*;
+
+/**
+ * Groups classes by package, so big projects only pay for the packages actually being looked at.
+ * <p>
+ * Every package gets its own area of the plane, sized from how much code is in it. Until it's expanded,
+ * a package is just a labelled box with no windows, editors or snapshots behind it, and inheritance between
+ * collapsed packages is drawn as one arrow per pair of packages, weighted by how many classes it stands for.
+ * Packages expand when clicked, or when zoomed in close enough to read them, and their classes are then
+ * laid out inside the package's area. They collapse again, giving back their windows and editors, when
+ * zoomed back out or once they've been off screen for a while.
+ * <p>
+ * Small projects aren't clustered at all, every package starts off expanded.
+ */
+public class ClusterManager {
+    // Below this many classes everything is loaded straight away, as it always was.
+    public static final int CLUSTER_THRESHOLD = 200;
+    // Zoomed in this far or further, any package on screen is expanded.
+    private static final int EXPAND_ZOOM_LEVEL = 2;
+    // Used to guess how much room a package's classes will take before any of them are loaded.
+    private static final double BYTES_PER_LINE = 30;
+    private static final double LINE_HEIGHT = 17;
+    private static final double WINDOW_WIDTH = 700;
+    private static final int MIN_LINES = 10;
+    private static final double REGION_ASPECT = 1.5;
+    private static final int MIN_LABEL_SIZE = 4;
+    private static final long COLLAPSE_AFTER_NANOS = 10_000_000_000L;
+
+    private final Map<String, Cluster> clusters = new TreeMap<>();
+    private final Map<String, Cluster> clusterOfClass = new HashMap<>();
+    private final Map<VirtualFile, ClassInfo> classOfFile = new HashMap<>();
+    private final Set<Cluster> expanding = new HashSet<>();
+    private final Set<Cluster> collapsing = new HashSet<>();
+    private boolean wasZoomedOut = false;
+    private final Map<Integer, Font> labelFonts = new HashMap<>();
+    private List<Edge> edges = null;
+    private boolean clustered = false;
+
+    private final Core core;
+    public ClusterManager(Core core) {
+        this.core = core;
+    }
+
+    /**
+     * Splits every class in the project into packages, and decides whether the project is big enough to cluster.
+     */
+    public void setClasses(List<ClassInfo> classes) {
+        clusters.clear();
+        clusterOfClass.clear();
+        classOfFile.clear();
+        for (var info : classes) {
+            add(info);
+        }
+        clustered = classes.size() > CLUSTER_THRESHOLD && clusters.size() > 1;
+        for (var cluster : clusters.values()) {
+            cluster.expanded = !clustered;
+        }
+        if (clustered) placeClusters();
+        edges = null;
+        core.log.info(() -> classes.size() + " classes in " + clusters.size() + " packages, clustered: " + clustered);
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * @return The files in every expanded package, which need windows.
+     */
+    public List<VirtualFile> filesToLoad() {
+        var files = new ArrayList<VirtualFile>();
+        for (var cluster : clusters.values()) {
+            if (!cluster.expanded) continue;
+            cluster.lastSeenNanos = System.nanoTime();
+            for (var info : cluster.classes) files.add(info.file);
+        }
+        return files;
+    }
+
+    /**
+     * Lays out the windows of every expanded package inside that package's area.
+     */
+    public void layOutExpanded() {
+        for (var cluster : clusters.values()) {
+            if (!cluster.expanded) continue;
+            var windows = windowsIn(cluster);
+            if (!windows.isEmpty()) core.layout.layOut(windows, cluster.bounds.getLocation(), REGION_ASPECT);
+        }
+    }
+
+    /**
+     * Creates the package's windows, putting any that have never been placed inside its area.
+     */
+    public void expand(Cluster cluster) {
+        if (cluster.expanded) return;
+        core.log.info(() -> "Expanding " + cluster.name + " with " + cluster.classes.size() + " classes");
+        cluster.expanded = true;
+        cluster.lastSeenNanos = System.nanoTime();
+        edges = null;
+
+        var psiManager = PsiManager.getInstance(core.getProject());
+        var unplaced = new ArrayList<EditorWindow>();
+        var created = new ArrayList<EditorWindow>();
+        for (var info : cluster.classes) {
+            if (!info.file.isValid() || core.editorWindowManager.windowFor(info.file) != null) continue;
+            var psiFile = psiManager.findFile(info.file);
+            if (!(psiFile instanceof PsiJavaFile)) continue;
+            var window = core.background.addEditorWindow((PsiJavaFile) psiFile);
+            created.add(window);
+            if (!core.positionStore.locationIsSaved(window)) unplaced.add(window);
+        }
+        if (!DumbService.isDumb(core.getProject())) {
+            var event = new PlaneEvents.GraphRebuild();
+            event.begin();
+            for (var window : created) window.rebuildExtendsList();
+            if (event.shouldCommit()) {
+                event.windowCount = created.size();
+                event.commit();
+            }
+        }
+        if (!unplaced.isEmpty()) {
+            core.layout.layOut(unplaced, cluster.bounds.getLocation(), REGION_ASPECT);
+        }
+        core.background.repaint();
+    }
+
+    /**
+     * Gets rid of the package's windows, along with their editors and snapshots, keeping where they were
+     * for when it's expanded again. Left alone while one of them is being edited.
+     */
+    public void collapse(Cluster cluster) {
+        if (!cluster.expanded) return;
+        var windows = windowsIn(cluster);
+        for (var window : windows) {
+            if (window.isEditor()) return;
+        }
+        core.log.info(() -> "Collapsing " + cluster.name + " with " + windows.size() + " windows");
+        cluster.expanded = false;
+        edges = null;
+        for (var window : windows) {
+            core.editorWindowManager.remove(window);
+        }
+        core.background.repaint();
+    }
+
+    /**
+     * @param worldPoint A point in world coordinates.
+     * @return The collapsed package at that point, or null if there isn't one.
+     */
+    public Cluster collapsedAt(Point2D worldPoint) {
+        if (!clustered) return null;
+        for (var cluster : clusters.values()) {
+            if (!cluster.expanded && cluster.bounds.contains(worldPoint)) return cluster;
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether a new file was taken in by a collapsed package, in which case it doesn't need a window.
+     */
+    public boolean fileCreated(PsiJavaFile file) {
+        // Already known, so it's replaced rather than counted twice.
+        if (classOfFile.containsKey(file.getVirtualFile())) fileDeleted(file.getVirtualFile());
+        var cluster = add(ClassInfo.of(file));
+        edges = null;
+        placeIfNew(cluster);
+        return !cluster.expanded;
+    }
+
+    /**
+     * @return Whether the file is one of the classes being clustered.
+     */
+    public boolean isKnown(VirtualFile file) {
+        return classOfFile.containsKey(file);
+    }
+
+    /**
+     * Swaps in a class's freshly resolved info after it's been edited, so the arrows between collapsed
+     * packages follow what it extends now, and which package it's in.
+     */
+    public void classChanged(ClassInfo info) {
+        if (!classOfFile.containsKey(info.file)) return;
+        fileDeleted(info.file);
+        placeIfNew(add(info));
+        edges = null;
+    }
+
+    /**
+     * For a file being put on the plane on purpose, which shouldn't end up hidden in a collapsed package.
+     * Its package is expanded instead, taking the file in first if it wasn't in the scope.
+     *
+     * @return Whether that gave the file a window, in which case it doesn't need one making.
+     */
+    public boolean reveal(PsiJavaFile file) {
+        var info = classOfFile.get(file.getVirtualFile());
+        if (info == null) {
+            if (!fileCreated(file)) return false;
+            info = classOfFile.get(file.getVirtualFile());
+        }
+        var cluster = clusters.get(info.packageName);
+        if (cluster == null || cluster.expanded) return false;
+        expand(cluster);
+        return core.editorWindowManager.windowFor(info.file) != null;
+    }
+
+    public void fileDeleted(VirtualFile file) {
+        var info = classOfFile.remove(file);
+        if (info == null) return;
+        var cluster = clusters.get(info.packageName);
+        if (cluster != null) cluster.classes.remove(info);
+        if (info.qualifiedName != null) clusterOfClass.remove(info.qualifiedName);
+        edges = null;
+    }
+
+    /**
+     * Draws the collapsed packages and the arrows between them, underneath any windows.
+     */
+    public void paint(Graphics2D g) {
+        if (!clustered) return;
+        var visible = core.viewport.getVisibleArea();
+        boolean closeEnough = !core.isLoading() && core.zoomPanHandler.getZoomLevel() <= EXPAND_ZOOM_LEVEL;
+
+        var stroke = g.getStroke();
+        g.setColor(Colors.arrow());
+        for (var edge : getEdges()) {
+            var from = core.zoomPanHandler.toScreen(edge.from.bounds);
+            var to = core.zoomPanHandler.toScreen(edge.to.bounds);
+            // A line per class would be unreadable, so heavier packages get thicker arrows instead.
+            g.setStroke(new BasicStroke((float) (1 + Math.log(edge.weight) / Math.log(2))));
+            MyUtils.drawArrowLine(g, (int) from.getCenterX(), (int) from.getCenterY(), (int) to.getCenterX(), (int) to.getCenterY());
+            if (edge.weight > 1) {
+                g.drawString(String.valueOf(edge.weight), (int) (from.getCenterX() + to.getCenterX()) / 2, (int) (from.getCenterY() + to.getCenterY()) / 2);
+            }
+        }
+        g.setStroke(stroke);
+
+        collapseUnused(visible);
+        for (var cluster : clusters.values()) {
+            if (cluster.expanded || !cluster.bounds.intersects(visible)) continue;
+            if (closeEnough && expanding.add(cluster)) {
+                // Not while painting, as it adds windows.
+                SwingUtilities.invokeLater(() -> {
+                    expanding.remove(cluster);
+                    expand(cluster);
+                });
+            }
+            paintCollapsed(g, cluster);
+        }
+    }
+
+    /**
+     * Collapses every expanded package once zoomed back out, and any that have been off screen for a while,
+     * so panning around up close doesn't leave a trail of windows behind it.
+     */
+    private void collapseUnused(Rectangle visible) {
+        if (core.isLoading() || core.zoomPanHandler.isAnimating()) return;
+        boolean zoomedOut = core.zoomPanHandler.getZoomLevel() > EXPAND_ZOOM_LEVEL;
+        boolean justZoomedOut = zoomedOut && !wasZoomedOut;
+        wasZoomedOut = zoomedOut;
+
+        long now = System.nanoTime();
+        for (var cluster : clusters.values()) {
+            if (!cluster.expanded) continue;
+            boolean onScreen = cluster.bounds.intersects(visible);
+            if (onScreen) cluster.lastSeenNanos = now;
+            boolean stale = !onScreen && now - cluster.lastSeenNanos > COLLAPSE_AFTER_NANOS;
+            if ((justZoomedOut || stale) && collapsing.add(cluster)) {
+                // Not while painting, as it removes windows.
+                SwingUtilities.invokeLater(() -> {
+                    collapsing.remove(cluster);
+                    collapse(cluster);
+                });
+            }
+        }
+    }
+
+    private void paintCollapsed(Graphics2D g, Cluster cluster) {
+        var screen = core.zoomPanHandler.toScreen(cluster.bounds);
+        g.setColor(Colors.clusterBackground());
+        g.fillRect(screen.x, screen.y, screen.width, screen.height);
+        g.setColor(Colors.borderUnselected());
+        g.drawRect(screen.x, screen.y, screen.width - 1, screen.height - 1);
+
+        var label = cluster.name + " (" + cluster.classes.size() + ")";
+        var base = Colors.getColorScheme().getFont(EditorFontType.BOLD);
+        var baseMetrics = g.getFontMetrics(base);
+        // Text scales linearly with font size, so one measurement at the base size is enough.
+        float byWidth = base.getSize2D() * screen.width * 0.9f / Math.max(1, baseMetrics.stringWidth(label));
+        float byHeight = base.getSize2D() * screen.height * 0.3f / baseMetrics.getHeight();
+        int size = (int) Math.min(byWidth, byHeight);
+        if (size < MIN_LABEL_SIZE) return;
+
+        var font = labelFonts.computeIfAbsent(size, s -> base.deriveFont((float) s));
+        var metrics = g.getFontMetrics(font);
+        g.setFont(font);
+        g.setColor(Colors.text());
+        g.drawString(
+                label,
+                screen.x + (screen.width - metrics.stringWidth(label)) / 2,
+                screen.y + (screen.height - metrics.getHeight()) / 2 + metrics.getAscent()
+        );
+    }
+
+    /**
+     * One arrow for each pair of packages with classes extending across them, unless both are expanded,
+     * in which case the windows draw their own.
+     */
+    private List<Edge> getEdges() {
+        if (edges != null) return edges;
+        var weights = new LinkedHashMap<List<Cluster>, Integer>();
+        for (var cluster : clusters.values()) {
+            for (var info : cluster.classes) {
+                for (var parentName : info.parentNames) {
+                    var parent = clusterOfClass.get(parentName);
+                    if (parent == null || parent == cluster) continue;
+                    if (cluster.expanded && parent.expanded) continue;
+                    weights.merge(List.of(cluster, parent), 1, Integer::sum);
+                }
+            }
+        }
+        edges = new ArrayList<>();
+        for (var entry : weights.entrySet()) {
+            edges.add(new Edge(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()));
+        }
+        return edges;
+    }
+
+    private Cluster add(ClassInfo info) {
+        var cluster = clusters.computeIfAbsent(info.packageName, Cluster::new);
+        cluster.classes.add(info);
+        classOfFile.put(info.file, info);
+        if (info.qualifiedName != null) clusterOfClass.put(info.qualifiedName, cluster);
+        return cluster;
+    }
+
+    private void placeIfNew(Cluster cluster) {
+        if (cluster.bounds != null) return;
+        // A brand new package, which is expanded so its first class shows up like it always did.
+        cluster.bounds = new Rectangle(World.SIZE / 2, World.SIZE / 2, 0, 0);
+        cluster.expanded = true;
+    }
+
+    private List<EditorWindow> windowsIn(Cluster cluster) {
+        var windows = new ArrayList<EditorWindow>();
+        for (var info : cluster.classes) {
+            var window = core.editorWindowManager.windowFor(info.file);
+            if (window != null) windows.add(window);
+        }
+        return windows;
+    }
+
+    /**
+     * Gives every package an area big enough for its classes, packed together in package name order.
+     */
+    private void placeClusters() {
+        var ordered = new ArrayList<>(clusters.values());
+        double[] widths = new double[ordered.size()];
+        double[] heights = new double[ordered.size()];
+        double spacing = core.layout.getSpacing();
+        for (int i = 0; i < ordered.size(); i++) {
+            double area = 0;
+            for (var info : ordered.get(i).classes) {
+                double lines = Math.max(MIN_LINES, info.length / BYTES_PER_LINE);
+                area += (WINDOW_WIDTH + spacing) * (lines * LINE_HEIGHT + spacing);
+            }
+            widths[i] = Math.sqrt(area * REGION_ASPECT);
+            heights[i] = area / widths[i];
+        }
+
+        var positions = new SkylinePacker(spacing * 4).pack(widths, heights, REGION_ASPECT);
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).bounds = new Rectangle(
+                    (int) (World.SIZE / 2 + positions[i].x),
+                    (int) (World.SIZE / 2 + positions[i].y),
+                    (int) widths[i],
+                    (int) heights[i]
+            );
+        }
+    }
+
+    /**
+     * What's needed to cluster a class without creating a window for it. Only filled in from the PSI stubs
+     * and index, so it's cheap to make for every class in the project. Only the file is kept, not its PSI,
+     * so collapsed packages don't hold on to any.
+     */
+    public static class ClassInfo {
+        final VirtualFile file;
+        final String packageName;
+        final String qualifiedName;
+        final List<String> parentNames;
+        final long length;
+
+        private ClassInfo(PsiJavaFile psiFile, String qualifiedName, List<String> parentNames) {
+            this.file = psiFile.getVirtualFile();
+            this.packageName = psiFile.getPackageName();
+            this.qualifiedName = qualifiedName;
+            this.parentNames = parentNames;
+            this.length = file.getLength();
+        }
+
+        /**
+         * Needs a read action, and the index for resolving what the class extends.
+         */
+        public static ClassInfo of(PsiJavaFile psiFile) {
+            var parentNames = new ArrayList<String>();
+            String qualifiedName = null;
+            var classes = psiFile.getClasses();
+            if (classes.length > 0) {
+                var psiClass = classes[0];
+                qualifiedName = psiClass.getQualifiedName();
+                // Resolving needs the index, and in dumb mode the arrows just wait until the windows rebuild them.
+                if (!psiClass.isInterface() && !DumbService.isDumb(psiFile.getProject())) {
+                    for (PsiClassType type : psiClass.getExtendsListTypes()) {
+                        var parent = type.resolve();
+                        if (parent != null && parent.getQualifiedName() != null) parentNames.add(parent.getQualifiedName());
+                    }
+                }
+            }
+            return new ClassInfo(psiFile, qualifiedName, parentNames);
+        }
+    }
+
+    public static class Cluster {
+        final String name;
+        final List<ClassInfo> classes = new ArrayList<>();
+        Rectangle bounds = null;
+        boolean expanded = false;
+        // When it was last expanded and on screen.
+        long lastSeenNanos = 0;
+
+        Cluster(String packageName) {
+            name = packageName.isEmpty() ? "(default package)" : packageName;
+        }
+    }
+
+    private static class Edge {
+        final Cluster from;
+        final Cluster to;
+        final int weight;
+
+        Edge(Cluster from, Cluster to, int weight) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+        }
+    }
+}
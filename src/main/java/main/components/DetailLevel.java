@@ -0,0 +1,31 @@
+package main.components;
+
+import main.core.Core;
+
+/**
+ * How much of a class is drawn, which depends on how far out the plane is zoomed.
+ * <p>
+ * Snapshots are only worth their memory and rasterizing time when they're big enough to read,
+ * so further out windows are drawn from much cheaper summaries, see the DetailRenderer.
+ */
+public enum DetailLevel {
+    // A box with the class name in it, sized by how long the class is.
+    BOX,
+    // Just the class's signature, see the SummaryRenderer.
+    SUMMARY,
+    // The real editor snapshot.
+    SNAPSHOT;
+
+    private static final int LAST_SNAPSHOT_ZOOM_LEVEL = 1;
+    private static final int LAST_SUMMARY_ZOOM_LEVEL = 4;
+
+    public static DetailLevel forZoomLevel(int zoomLevel) {
+        if (zoomLevel <= LAST_SNAPSHOT_ZOOM_LEVEL) return SNAPSHOT;
+        if (zoomLevel <= LAST_SUMMARY_ZOOM_LEVEL) return SUMMARY;
+        return BOX;
+    }
+
+    public static DetailLevel current(Core core) {
+        return forZoomLevel(core.zoomPanHandler.getZoomLevel());
+    }
+}
@@ -0,0 +1,176 @@
+package main.components;
+
+import com.intellij.openapi.editor.colors.EditorFontType;
+import main.core.Colors;
+import main.core.Core;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Draws windows that are too far away to be worth a snapshot, and works out how big a window will be
+ * before it has one.
+ * <p>
+ * The outline, every line drawn as a bar, stands in for a snapshot that hasn't been made yet, and for a
+ * summary that's too small to read.
+ * <p>
+ * Everything is worked out from the document's text alone, so nothing needs an editor, a snapshot or the PSI.
+ * The shape of each document's lines is cached until the document changes.
+ */
+public class DetailRenderer {
+    // Room for the line numbers and gutter icons the editor draws to the left of the text.
+    private static final int GUTTER_COLUMNS = 6;
+    private static final int TAB_COLUMNS = 4;
+    // Any smaller and the label isn't readable anyway.
+    private static final int MIN_LABEL_SIZE = 4;
+
+    private final Map<EditorWindow, LineShape> shapes = new HashMap<>();
+    private final Map<Integer, Font> labelFonts = new HashMap<>();
+    private FontMetrics metrics = null;
+    private FontMetrics labelMetrics = null;
+    private int lineHeight;
+
+    private final Core core;
+    public DetailRenderer(Core core) {
+        this.core = core;
+    }
+
+    /**
+     * @return Roughly how big the window's snapshot would be, without making one.
+     */
+    public Dimension estimateSize(EditorWindow window) {
+        var shape = shapeOf(window);
+        return new Dimension(
+                (GUTTER_COLUMNS + shape.maxColumns) * metrics.charWidth('m'),
+                Math.max(1, shape.lengths.length) * lineHeight
+        );
+    }
+
+    /**
+     * Draws every line as a bar, indented and as long as the real line.
+     */
+    public void paintOutline(Graphics2D g, EditorWindow window, int x, int y, int width, int height, double zoom) {
+        var shape = shapeOf(window);
+        g.setColor(Colors.background());
+        g.fillRect(x, y, width, height);
+
+        double charWidth = metrics.charWidth('m') * zoom;
+        double scaledLineHeight = lineHeight * zoom;
+        int barHeight = Math.max(1, (int) (scaledLineHeight * 0.6));
+        var clip = g.getClipBounds();
+        int first = 0;
+        int last = shape.lengths.length - 1;
+        if (clip != null) {
+            first = Math.max(first, (int) ((clip.y - y) / scaledLineHeight));
+            last = Math.min(last, (int) ((clip.y + clip.height - y) / scaledLineHeight));
+        }
+
+        g.setColor(Colors.text());
+        for (int line = first; line <= last; line++) {
+            if (shape.lengths[line] == 0) continue;
+            g.fillRect(
+                    x + (int) ((GUTTER_COLUMNS + shape.indents[line]) * charWidth),
+                    y + (int) (line * scaledLineHeight + scaledLineHeight * 0.2),
+                    Math.max(1, (int) (shape.lengths[line] * charWidth)),
+                    barHeight
+            );
+        }
+    }
+
+    /**
+     * Draws a box with the class's name in it, as big as will fit.
+     */
+    public void paintBox(Graphics2D g, EditorWindow window, int x, int y, int width, int height) {
+        var shape = shapeOf(window);
+        g.setColor(Colors.background());
+        g.fillRect(x, y, width, height);
+
+        // Text scales linearly with font size, so one measurement at the base size is enough.
+        float base = labelMetrics.getFont().getSize2D();
+        float byWidth = base * width * 0.9f / Math.max(1, shape.labelWidth);
+        float byHeight = base * height * 0.4f / labelMetrics.getHeight();
+        int size = (int) Math.min(byWidth, byHeight);
+        if (size < MIN_LABEL_SIZE) return;
+
+        var font = labelFonts.computeIfAbsent(size, s -> labelMetrics.getFont().deriveFont((float) s));
+        var sizedMetrics = g.getFontMetrics(font);
+        g.setFont(font);
+        g.setColor(Colors.text());
+        g.drawString(
+                shape.label,
+                x + (width - sizedMetrics.stringWidth(shape.label)) / 2,
+                y + (height - sizedMetrics.getHeight()) / 2 + sizedMetrics.getAscent()
+        );
+    }
+
+    /**
+     * Called whenever the window's document changes.
+     */
+    public void invalidate(EditorWindow window) {
+        shapes.remove(window);
+    }
+
+    public void removed(EditorWindow window) {
+        shapes.remove(window);
+    }
+
+    private LineShape shapeOf(EditorWindow window) {
+        if (metrics == null) {
+            var scheme = Colors.getColorScheme();
+            var font = scheme.getFont(EditorFontType.PLAIN);
+            var graphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+            metrics = graphics.getFontMetrics(font);
+            labelMetrics = graphics.getFontMetrics(font.deriveFont(Font.BOLD));
+            graphics.dispose();
+            lineHeight = (int) Math.ceil(metrics.getHeight() * scheme.getLineSpacing());
+        }
+        return shapes.computeIfAbsent(window, this::measure);
+    }
+
+    private LineShape measure(EditorWindow window) {
+        var doc = window.myDoc;
+        var text = doc.getImmutableCharSequence();
+        int lines = doc.getLineCount();
+        var shape = new LineShape(lines);
+
+        for (int line = 0; line < lines; line++) {
+            int start = doc.getLineStartOffset(line);
+            int end = doc.getLineEndOffset(line);
+            int column = 0;
+            int indent = -1;
+            int lastVisible = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                column += c == '\t' ? TAB_COLUMNS : 1;
+                if (!Character.isWhitespace(c)) {
+                    if (indent == -1) indent = column - 1;
+                    lastVisible = column;
+                }
+            }
+            if (indent != -1) {
+                shape.indents[line] = indent;
+                shape.lengths[line] = lastVisible - indent;
+            }
+            shape.maxColumns = Math.max(shape.maxColumns, column);
+        }
+
+        shape.label = window.getVirtualFile().getNameWithoutExtension();
+        shape.labelWidth = labelMetrics.stringWidth(shape.label);
+        return shape;
+    }
+
+    private static class LineShape {
+        final int[] indents;
+        final int[] lengths;
+        int maxColumns = 0;
+        String label;
+        int labelWidth;
+
+        LineShape(int lines) {
+            indents = new int[lines];
+            lengths = new int[lines];
+        }
+    }
+}
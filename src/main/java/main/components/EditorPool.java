@@ -0,0 +1,87 @@
+package main.components;
+
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.impl.EditorImpl;
+import main.core.Core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hands out real IntelliJ editors to the windows that are actually being edited or hovered.
+ * <p>
+ * Every other window only exists as a still, so the number of live editors depends on how many windows
+ * are active rather than on how many classes are in the project.
+ * An editor is tied to its document for life, so instead of being handed to another window a returned
+ * editor is kept idle for a while in case its window is leased again, and released once too many are idle.
+ */
+public class EditorPool {
+    public static final int MAX_IDLE_EDITORS = 4;
+
+    private final Map<EditorWindow, EditorImpl> leased = new HashMap<>();
+    // Insertion ordered, so the first entry is the one that's been idle the longest.
+    private final LinkedHashMap<EditorWindow, EditorImpl> idle = new LinkedHashMap<>();
+
+    private final Core core;
+    public EditorPool(Core core) {
+        this.core = core;
+    }
+
+    public EditorImpl lease(EditorWindow window) {
+        var editor = leased.get(window);
+        if (editor != null) return editor;
+
+        editor = idle.remove(window);
+        if (editor == null) {
+            core.log.debug(() -> window + " - Creating pooled editor. Live editors: " + (getLiveCount() + 1));
+            editor = (EditorImpl) EditorFactory.getInstance().createEditor(
+                    window.myDoc,
+                    core.getProject(),
+                    window.myVirtualFile,
+                    false
+            );
+            window.setUpEditor(editor);
+        }
+        leased.put(window, editor);
+        return editor;
+    }
+
+    public void giveBack(EditorWindow window) {
+        var editor = leased.remove(window);
+        if (editor == null) return;
+
+        idle.put(window, editor);
+        Iterator<EditorImpl> it = idle.values().iterator();
+        while (idle.size() > MAX_IDLE_EDITORS) {
+            EditorFactory.getInstance().releaseEditor(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Releases any editor belonging to the window, leased or not.
+     */
+    public void release(EditorWindow window) {
+        var editor = leased.remove(window);
+        if (editor != null) EditorFactory.getInstance().releaseEditor(editor);
+        editor = idle.remove(window);
+        if (editor != null) EditorFactory.getInstance().releaseEditor(editor);
+    }
+
+    public int getLiveCount() {
+        return leased.size() + idle.size();
+    }
+
+    public void dispose() {
+        for (var editor : leased.values()) {
+            EditorFactory.getInstance().releaseEditor(editor);
+        }
+        for (var editor : idle.values()) {
+            EditorFactory.getInstance().releaseEditor(editor);
+        }
+        leased.clear();
+        idle.clear();
+    }
+}
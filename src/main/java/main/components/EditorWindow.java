@@ -1,7 +1,6 @@
 package main.components;
 
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
 import com.intellij.openapi.editor.ex.FoldingListener;
@@ -13,7 +12,9 @@ import com.intellij.psi.PsiJavaFile;
 import main.core.Colors;
 import main.core.Core;
 import main.core.Tutorial;
+import main.util.MipmapChain;
 import main.util.MyUtils;
+import main.util.PlaneEvents;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
@@ -27,23 +28,27 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class EditorWindow extends JComponent {
-    public final EditorImpl editor;
+    // Only leased from the EditorPool while this window is an editor, null otherwise.
+    public EditorImpl editor;
     public final VirtualFile myVirtualFile;
     public final PsiJavaFile myPsiFile;
     public final Document myDoc;
     private final Point startDragMouseLocation = new Point();
-    private final Point startDragComponentLocation = new Point();
+    private final Point2D.Double startDragComponentLocation = new Point2D.Double();
     private final TitleBorder border;
     private final DocumentListener docListener;
     public BufferedImage image;
+    // Pre-scaled copies of image, so painting never has to rescale it.
+    private MipmapChain mipmaps;
+    // Kept separately as the SnapshotStore may evict the image itself.
+    private int snapshotWidth = 0;
+    private int snapshotHeight = 0;
     public boolean isSelected;
-    public List<EditorWindow> extendsList = new ArrayList<>();
-    public List<EditorWindow> extendsMeList = new ArrayList<>();
     public boolean processing = false;
     public boolean isDragging = false;
-    private boolean isEditor = true;
+    private boolean isEditor = false;
     private int myVirtualPageHeight;
-    // This exclusively exists so that we don't get rounding errors when zooming.
+    // The exact world position, as our integer bounds lose anything after the decimal point.
     private final Point2D.Double trueLocation = new Point2D.Double();
     private final Core core;
 
@@ -53,27 +58,35 @@ public class EditorWindow extends JComponent {
         myDoc = MyUtils.PSIFileToDoc(psiFile, core);
         myVirtualFile = MyUtils.docToVirtualFile(myDoc);
         setLayout(new BorderLayout());
-        editor = (EditorImpl) EditorFactory.getInstance().createEditor(
-                myDoc,
-                core.getProject(),
-                myVirtualFile,
-                false
-        );
 
         docListener = new DocumentListener() {
             @Override
             public void documentChanged(@NotNull DocumentEvent event) {
-                if (!core.toolWindow.isVisible()) return;
-                if (!isEditor) {
-                    // A cause of many framerate issues.
-                    toEditor();
-                    toStill();
+                // Kept up to date even while hidden, as nothing else would refresh them later.
+                core.detailRenderer.invalidate(EditorWindow.this);
+                if (!isEditor && !hasSnapshot()) {
+                    // Nothing to rebuild, but it may be a different size now.
+                    sizeToContent();
+                } else if (!isEditor) {
+                    // Rebuilding straight away was a cause of many framerate issues.
+                    core.snapshotScheduler.markStale(EditorWindow.this);
                 }
+                if (!core.toolWindow.isVisible()) return;
                 Tutorial.doStep5(core);
             }
         };
         myDoc.addDocumentListener(docListener);
 
+        border = new TitleBorder(this);
+        setBorder(border);
+
+        addListeners();
+    }
+
+    /**
+     * Called by the EditorPool on any editor it creates for this window.
+     */
+    void setUpEditor(EditorImpl editor) {
         editor.getScrollingModel().addVisibleAreaListener(e -> {
             refresh();
         });
@@ -82,7 +95,7 @@ public class EditorWindow extends JComponent {
             public void onFoldProcessingEnd() {
                 refresh();
             }
-        }, core.disposer);
+        }, editor.getDisposable());
 
         editor.getSettings().setShowIntentionBulb(false);
         editor.getSettings().setRightMarginShown(false);
@@ -91,13 +104,9 @@ public class EditorWindow extends JComponent {
         editor.getScrollPane().setWheelScrollingEnabled(false);
         editor.getFoldingModel().setFoldingEnabled(false);
 
-        add(editor.getComponent());
-        border = new TitleBorder(this, core);
-        setBorder(border);
-
-        addListeners();
-
-        refresh();
+        editor.addEditorMouseListener(core.globalListeners.globalEditorMouseListener);
+        editor.addEditorMouseMotionListener(core.globalListeners.globalEditorMouseMotionListener);
+        editor.getScrollPane().addMouseWheelListener(core.globalListeners.globalMouseWheelListener);
     }
 
     @Override
@@ -105,36 +114,63 @@ public class EditorWindow extends JComponent {
         return myPsiFile.getName();
     }
 
+    /**
+     * Updates this window's own edges in the inheritance graph. Nothing else's edges are recomputed.
+     */
     public void rebuildExtendsList() {
-        extendsList.clear();
+        core.inheritanceGraph.put(this, getQualifiedName());
+        core.inheritanceGraph.setParents(this, resolveExtendsNames());
+    }
+
+    /**
+     * @return The qualified names of any classes this window's class extends.
+     */
+    public List<String> resolveExtendsNames() {
+        var names = new ArrayList<String>();
         var classes = getPsiClass();
-        if (classes == null) return;
-        if (classes.isInterface()) return; // Don't even bother
+        if (classes == null) return names;
+        if (classes.isInterface()) return names; // Don't even bother
         var extendsList = classes.getExtendsList();
-        if (extendsList == null) return;
+        if (extendsList == null) return names;
         for (PsiClassType psiClassType : extendsList.getReferencedTypes()) {
-            for (var window2 : core.editorWindowManager.getWindows()) {
-                var psiClass = psiClassType.resolve();
-                if (psiClass == window2.getPsiClass()) {
-                    this.extendsList.add(window2);
-                }
+            var psiClass = psiClassType.resolve();
+            if (psiClass != null && psiClass.getQualifiedName() != null) {
+                names.add(psiClass.getQualifiedName());
             }
         }
+        return names;
     }
 
-    public void rebuildExtendsMeList() {
-        extendsMeList.clear();
-        for (var window : core.editorWindowManager.getWindows()) {
-            if (window.extendsList.contains(this)) {
-                extendsMeList.add(window);
-            }
-        }
+    public String getQualifiedName() {
+        var psiClass = getPsiClass();
+        return psiClass == null ? null : psiClass.getQualifiedName();
+    }
+
+    /**
+     * @return The windows this window's class extends.
+     */
+    public List<EditorWindow> getExtendsList() {
+        return core.inheritanceGraph.getParents(this);
+    }
+
+    /**
+     * @return The windows whose classes extend this window's class.
+     */
+    public List<EditorWindow> getExtendsMeList() {
+        return core.inheritanceGraph.getChildren(this);
     }
 
     public void dispose() {
         myDoc.removeDocumentListener(docListener);
-        core.getWorld().remove(this);
-        EditorFactory.getInstance().releaseEditor(editor);
+        core.snapshotStore.removed(this);
+        core.snapshotScheduler.removed(this);
+        core.viewport.windowRemoved(this);
+        core.inheritanceGraph.remove(this);
+        core.layout.windowRemoved(this);
+        core.detailRenderer.removed(this);
+        core.summaryRenderer.removed(this);
+        core.editorPool.release(this);
+        editor = null;
     }
 
     public PsiClass getPsiClass() {
@@ -147,40 +183,86 @@ public class EditorWindow extends JComponent {
     }
 
     public void paintComponent(Graphics g) {
-        g.setColor(new Color(40, 40, 60));
-
         var insets = border.getBorderInsets(null);
-        double scalingFactor = core.zoomPanHandler.getCurrentZoom();
+        paintSnapshot(g, insets.left, insets.top);
+    }
 
-        if (image == null) {
+    /**
+     * Paints the snapshot at the current zoom level, along with any hover or selection overlays.
+     * Used both when mounted and when the PlaneRenderer draws this window as a still.
+     *
+     * @param x Where the snapshot's top left goes.
+     * @param y Where the snapshot's top left goes.
+     */
+    public void paintSnapshot(Graphics g, int x, int y) {
+        long start = core.metrics.windowPaint.start();
+        drawSnapshot(g, x, y);
+        core.metrics.windowPaint.stop(start);
+    }
+
+    private void drawSnapshot(Graphics g, int x, int y) {
+        g.setColor(new Color(40, 40, 60));
+
+        if (!isEditor) {
+            core.snapshotStore.touched(this);
+        }
+        if (mipmaps == null) {
             return;
         }
 
-        int width = (int) (image.getWidth() * scalingFactor);
-        int height = (int) (image.getHeight() * scalingFactor);
+        int width;
+        int height;
+        if (core.zoomPanHandler.isAnimating()) {
+            // Between levels, so scale whatever's closest rather than stall the animation building a sharp one.
+            double zoom = core.zoomPanHandler.getCurrentZoom();
+            width = (int) Math.round(snapshotWidth * zoom);
+            height = (int) Math.round(snapshotHeight * zoom);
+            g.drawImage(mipmaps.getNearestBuilt(core.zoomPanHandler.getZoomLevel()), x, y, width, height, null);
+        } else {
+            var snapshot = mipmaps.getLevel(core.zoomPanHandler.getZoomLevel());
+            width = snapshot.getWidth();
+            height = snapshot.getHeight();
+            g.drawImage(snapshot, x, y, null);
+        }
 
-        g.drawImage(image, insets.left, insets.top, width, height, null);
+        paintOverlays(g, x, y, width, height);
+    }
 
+    /**
+     * Paints the hover and selection overlays over whatever's been drawn for this window's content.
+     */
+    public void paintOverlays(Graphics g, int x, int y, int width, int height) {
         if (core.zoomPanHandler.getCurrentZoom() != 1.0) {
             if (isSelected) {
                 g.setColor(Colors.windowSelectedOverlay());
-                g.fillRect(insets.left, insets.top, width, height);
+                g.fillRect(x, y, width, height);
             }
             if (core.editorWindowManager.isHovered(this)) {
                 g.setColor(Colors.windowHoveredOverlay());
-                g.fillRect(insets.left, insets.top, width, height);
+                g.fillRect(x, y, width, height);
             } else if (core.editorWindowManager.dragHovered == this && core.overlay.isDragging) {
                 g.setColor(Colors.windowDraggedOntoOverlay());
-                g.fillRect(insets.left, insets.top, width, height);
+                g.fillRect(x, y, width, height);
             }
+        }
+    }
 
-            if (isSelected) {
-                var p = getLocationOnScreen();
-                p.translate(getWidth() / 2, getHeight() / 2 + insets.top / 2);
-                core.overlay.overlayCircleLocation = p;
-                core.overlay.repaint();
-            }
+    /**
+     * Unmounted windows are drawn by the PlaneRenderer, so any repaint needs to go to the background instead.
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // core is still null if this is hit during construction.
+        if (getParent() != null || core == null || core.background == null) {
+            super.repaint(tm, x, y, width, height);
+            return;
         }
+        var area = core.zoomPanHandler.toScreen(new Rectangle(x + getX(), y + getY(), width, height));
+        core.background.repaint(tm, area.x, area.y, area.width, area.height);
+    }
+
+    public TitleBorder getTitleBorder() {
+        return border;
     }
 
     public VirtualFile getVirtualFile() {
@@ -191,21 +273,41 @@ public class EditorWindow extends JComponent {
         return isEditor;
     }
 
+    public boolean hasSnapshot() {
+        return snapshotWidth > 0;
+    }
+
+    /**
+     * @return Whether the snapshot is in memory to be drawn, rather than evicted by the SnapshotStore.
+     */
+    public boolean isSnapshotLoaded() {
+        return mipmaps != null;
+    }
+
     public void toEditor() {
-        MyUtils.log(core, this.myPsiFile.getName() + " - Converting to editor.");
+        core.log.debug(() -> this.myPsiFile.getName() + " - Converting to editor.");
+        long start = core.metrics.toEditor.start();
         if (isEditor) {
-            MyUtils.log(core, this.myPsiFile.getName() + " - Already editor. Refreshing anyway.");
+            core.log.debug(() -> this.myPsiFile.getName() + " - Already editor. Refreshing anyway.");
+            refresh();
+        } else {
+            core.viewport.mount(this);
+            editor = core.editorPool.lease(this);
+            editor.setCaretVisible(true);
+            this.add(editor.getComponent());
+            isEditor = true;
             refresh();
-            return;
         }
-        editor.setCaretVisible(true);
-        this.add(editor.getComponent());
-        isEditor = true;
-        refresh();
+        core.metrics.toEditor.stop(start);
     }
 
     public void toStill() {
-        MyUtils.log(core, this.myPsiFile.getName() + " - Converting to still");
+        core.log.debug(() -> this.myPsiFile.getName() + " - Converting to still");
+        long start = core.metrics.toStill.start();
+        if (editor == null) {
+            // Nothing to rasterize without an editor, so borrow one just for that.
+            toEditor();
+        }
         editor.getSelectionModel().removeSelection();
         editor.setCaretVisible(false);
 
@@ -214,30 +316,92 @@ public class EditorWindow extends JComponent {
         isEditor = false;
         rebuildImage();
         this.remove(editor.getComponent());
-        zoomHasUpdated();
+        core.editorPool.giveBack(this);
+        editor = null;
+        sizeToSnapshot();
+        core.viewport.unmount(this);
         processing = false;
+        core.metrics.toStill.stop(start);
+    }
+
+    /**
+     * Re-rasterizes this window's snapshot from the current state of its document.
+     */
+    public void rebuildSnapshot() {
+        toEditor();
+        toStill();
     }
 
     private void rebuildImage() {
-        MyUtils.log(core, this.myPsiFile.getName() + "- Rebuilding image");
+        core.log.debug(() -> this.myPsiFile.getName() + "- Rebuilding image");
+        long start = core.metrics.rebuildImage.start();
+        var event = new PlaneEvents.SnapshotRasterized();
+        event.begin();
         int width = editor.getComponent().getWidth();
         int height = editor.getComponent().getHeight();
-        if (image != null) {
-            image.flush();
+        if (mipmaps != null) {
+            mipmaps.flush();
         }
         image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         Graphics2D graphics2D = image.createGraphics();
         editor.getComponent().paint(graphics2D);
         graphics2D.dispose();
+        mipmaps = new MipmapChain(image);
+        snapshotWidth = width;
+        snapshotHeight = height;
+        core.snapshotStore.stored(this);
+        core.metrics.rebuildImage.stop(start);
+        if (event.shouldCommit()) {
+            event.fileName = myPsiFile.getName();
+            event.width = width;
+            event.height = height;
+            event.bytes = 4L * width * height;
+            event.commit();
+        }
+    }
+
+    /**
+     * Hands the snapshot over to the SnapshotStore, leaving this window without one until it's restored.
+     */
+    public BufferedImage evictSnapshot() {
+        BufferedImage evicted = image;
+        image = null;
+        // The base level is handed over, so only flush the levels built from it.
+        for (int level = 1; level < MipmapChain.LEVELS; level++) {
+            mipmaps.getLevelIfBuilt(level).ifPresent(BufferedImage::flush);
+        }
+        mipmaps = null;
+        return evicted;
     }
 
-    public void zoomHasUpdated() {
-        double scalingFactor = core.zoomPanHandler.getCurrentZoom();
-        if (!isEditor() && image != null) {
+    public void restoreSnapshot(BufferedImage snapshot) {
+        image = snapshot;
+        mipmaps = new MipmapChain(snapshot);
+    }
+
+    /**
+     * Sizes the window to its snapshot, or to an estimate of what its snapshot would be if it doesn't have one yet.
+     */
+    public void sizeToContent() {
+        if (isEditor()) return;
+        if (hasSnapshot()) {
+            sizeToSnapshot();
+            return;
+        }
+        var size = core.detailRenderer.estimateSize(this);
+        var insets = border.getBorderInsets(null);
+        setSize(size.width + insets.left + insets.right, size.height + insets.top + insets.bottom);
+    }
+
+    /**
+     * Our bounds are in world space, so a still is always the size of its snapshot at zoom 1.0.
+     */
+    private void sizeToSnapshot() {
+        if (!isEditor() && snapshotWidth > 0) {
             var insets = border.getBorderInsets(null);
             setSize(
-                    (int) (image.getWidth() * scalingFactor) + insets.left + insets.right,
-                    (int) (image.getHeight() * scalingFactor) + insets.top + insets.bottom
+                    snapshotWidth + insets.left + insets.right,
+                    snapshotHeight + insets.top + insets.bottom
             );
             revalidate();
         }
@@ -271,16 +435,28 @@ public class EditorWindow extends JComponent {
         validate();
     }
 
-    private void mouseMoveEvent(MouseEvent e) {
-        if (isDragging) {
-            core.editorWindowManager.pullToTop(this);
-            int dX = startDragMouseLocation.x - e.getXOnScreen();
-            int dY = startDragMouseLocation.y - e.getYOnScreen();
-            setLocation(startDragComponentLocation.x - dX, startDragComponentLocation.y - dY);
-            core.background.repaint();
-            MyUtils.log(core, "Moved editor window: " + getLocation());
-        }
+    public void startDrag(Point mouseOnScreen) {
+        isDragging = true;
+        startDragMouseLocation.setLocation(mouseOnScreen);
+        startDragComponentLocation.setLocation(trueLocation);
+        Tutorial.doStep2(core);
+    }
 
+    public void dragTo(Point mouseOnScreen) {
+        if (!isDragging) return;
+        core.editorWindowManager.pullToTop(this);
+        // The mouse moves in screen pixels, which are bigger or smaller than world ones depending on zoom.
+        double zoom = core.zoomPanHandler.getCurrentZoom();
+        double dX = (startDragMouseLocation.x - mouseOnScreen.x) / zoom;
+        double dY = (startDragMouseLocation.y - mouseOnScreen.y) / zoom;
+        setLocation(startDragComponentLocation.x - dX, startDragComponentLocation.y - dY);
+        core.layout.windowDragged(this);
+        core.background.repaint();
+        core.log.debug(() -> "Moved editor window: " + getLocation());
+    }
+
+    private void mouseMoveEvent(MouseEvent e) {
+        dragTo(e.getLocationOnScreen());
         core.editorWindowManager.mouseMovedInWindow(this);
     }
 
@@ -305,10 +481,7 @@ public class EditorWindow extends JComponent {
                 if (core.overlay.circleHovered) return;
 
                 if (e.getButton() == 1) {
-                    isDragging = true;
-                    startDragMouseLocation.setLocation(e.getXOnScreen(), e.getYOnScreen());
-                    startDragComponentLocation.setLocation(editorWindow.getLocation());
-                    Tutorial.doStep2(core);
+                    startDrag(e.getLocationOnScreen());
                 }
             }
 
@@ -338,9 +511,13 @@ public class EditorWindow extends JComponent {
         addMouseMotionListener(core.globalListeners.globalMouseMotionListener);
         addMouseListener(core.globalListeners.globalMouseListener);
         addMouseWheelListener(core.globalListeners.globalMouseWheelListener);
-        editor.addEditorMouseListener(core.globalListeners.globalEditorMouseListener);
-        editor.addEditorMouseMotionListener(core.globalListeners.globalEditorMouseMotionListener);
-        editor.getScrollPane().addMouseWheelListener(core.globalListeners.globalMouseWheelListener);
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+        // Every move and resize goes through here.
+        core.viewport.windowMoved(this);
     }
 
     public Point2D.Double getTrueLocation() {
@@ -350,20 +527,20 @@ public class EditorWindow extends JComponent {
     public void setLocation(double x, double y) {
         trueLocation.setLocation(x, y);
         super.setLocation((int) x, (int) y);
-        core.settingsManager.saveLocationToFile(this);
+        core.positionStore.locationChanged(this);
     }
 
     @Override
     public void setLocation(@NotNull Point p) {
         trueLocation.setLocation(p);
         super.setLocation(p);
-        core.settingsManager.saveLocationToFile(this);
+        core.positionStore.locationChanged(this);
     }
 
     @Override
     public void setLocation(int x, int y) {
         trueLocation.setLocation(x, y);
         super.setLocation(x, y);
-        core.settingsManager.saveLocationToFile(this);
+        core.positionStore.locationChanged(this);
     }
 }
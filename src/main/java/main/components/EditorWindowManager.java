@@ -1,17 +1,20 @@
 package main.components;
 
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiJavaFile;
 import main.core.Core;
-import main.util.MyUtils;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class EditorWindowManager {
     private final ArrayList<EditorWindow> editorWindows = new ArrayList<>();
+    private final Map<VirtualFile, EditorWindow> windowsByFile = new HashMap<>();
     public EditorWindow dragHovered = null; // If we're dragging, hovering doesn't work. DragHovered fixes that.
     // When zoomed out, currentEditor is null, but hoveredOver continues to update as normal.
     private EditorWindow currentEditor = null; // The current IntelliJ editor
@@ -22,26 +25,18 @@ public class EditorWindowManager {
         return Collections.unmodifiableList(editorWindows);
     }
 
+    /**
+     * @return The window showing the file, or null if there isn't one.
+     */
+    public EditorWindow windowFor(VirtualFile file) {
+        return windowsByFile.get(file);
+    }
+
     private final Core core;
     public EditorWindowManager(Core core) {
         this.core = core;
     }
 
-    public Point2D.Double averageWindowLocation() {
-        if (editorWindows.size() == 0) {
-            return new Point2D.Double(World.SIZE / 2f, World.SIZE / 2f);
-        }
-        Point2D.Double outP = new Point2D.Double();
-
-        for (var w : editorWindows) {
-            outP.x += w.getTrueLocation().x;
-            outP.y += w.getTrueLocation().y;
-        }
-        outP.x /= editorWindows.size();
-        outP.y /= editorWindows.size();
-        return outP;
-    }
-
     public void changeSelectionTo(EditorWindow window) {
         mouseClickedInWindow(window);
     }
@@ -51,24 +46,57 @@ public class EditorWindowManager {
             window.dispose();
         }
         editorWindows.clear();
+        windowsByFile.clear();
+    }
+
+    /**
+     * Gets rid of every window, keeping where they were for if they come back.
+     */
+    public void removeAll() {
+        core.positionStore.flush();
+        dispose();
+        currentEditor = null;
+        selectedEditor = null;
+        hoveredOver = null;
+        dragHovered = null;
+        core.background.repaint();
+    }
+
+    /**
+     * Gets rid of a window that may come back later, keeping where it was.
+     */
+    public void remove(EditorWindow window) {
+        core.positionStore.flush(window);
+        editorWindows.remove(window);
+        windowsByFile.remove(window.myVirtualFile);
+        if (selectedEditor == window) selectedEditor = null;
+        if (hoveredOver == window) hoveredOver = null;
+        if (dragHovered == window) dragHovered = null;
+        if (currentEditor == window) currentEditor = null;
+        window.dispose();
     }
 
     public EditorWindow createEditor(PsiJavaFile psiFile) {
         EditorWindow editorWindow = new EditorWindow(psiFile, core);
 
-        if (core.settingsManager.locationIsSaved(editorWindow)) {
-            Point2D.Double p = core.settingsManager.loadLocationFromFile(editorWindow);
+        if (core.positionStore.locationIsSaved(editorWindow)) {
+            Point2D.Double p = core.positionStore.loadLocation(editorWindow);
             editorWindow.setLocation(p.x, p.y);
+        } else {
+            editorWindow.setLocation(World.SIZE / 2f, World.SIZE / 2f);
         }
-
-        editorWindow.setLocation(World.SIZE / 2f, World.SIZE / 2f);
+        editorWindow.sizeToContent();
         editorWindows.add(editorWindow);
+        windowsByFile.put(editorWindow.myVirtualFile, editorWindow);
+        core.inheritanceGraph.put(editorWindow, editorWindow.getQualifiedName());
         return editorWindow;
     }
 
     public void delete(EditorWindow window) {
         ApplicationManager.getApplication().runWriteAction(() -> {
             editorWindows.remove(window);
+            windowsByFile.remove(window.myVirtualFile);
+            core.positionStore.forget(window);
             window.dispose();
             selectedEditor = null;
             hoveredOver = null;
@@ -162,8 +190,9 @@ public class EditorWindowManager {
     }
 
     public void allToStills() {
-        MyUtils.log(core, "All to stills...");
-        for (var window : editorWindows) {
+        core.log.debug(() -> "All to stills...");
+        // Only mounted windows can be editors.
+        for (var window : core.viewport.getMounted()) {
             if (window.isEditor()) {
                 window.toStill();
             }
@@ -0,0 +1,144 @@
+package main.components;
+
+import com.intellij.openapi.application.AppUIExecutor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import main.core.Core;
+import main.util.ForceLayout;
+import main.util.PlaneEvents;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Steps a {@link ForceLayout} on a pooled thread, moving the windows every so often so the layout can be
+ * watched as it settles.
+ * <p>
+ * Everything the layout needs is copied on the EDT when it's created. After that the only thing crossing
+ * threads is windows being pinned, which are queued up and picked up between steps.
+ */
+public class ForceLayoutRunner {
+    private static final Logger LOG = Logger.getInstance(ForceLayoutRunner.class);
+    private static final int MAX_STEPS = 1000;
+    // Roughly 20 updates a second, the EDT has better things to do than move every window every step.
+    private static final long POST_NANOS = 50_000_000;
+
+    private final List<EditorWindow> windows;
+    private final Map<EditorWindow, Integer> ids = new HashMap<>();
+    private final ForceLayout engine;
+    private final Queue<Pin> pins = new ConcurrentLinkedQueue<>();
+    private volatile boolean cancelled = false;
+    private volatile boolean finished = false;
+
+    private final Core core;
+    public ForceLayoutRunner(Core core, List<EditorWindow> windows, double spacing) {
+        this.core = core;
+        this.windows = new ArrayList<>(windows);
+        engine = new ForceLayout(spacing);
+        for (var window : this.windows) {
+            var location = window.getTrueLocation();
+            ids.put(window, engine.addNode(location.x, location.y, window.getWidth(), window.getHeight()));
+        }
+        for (var window : this.windows) {
+            for (var parent : window.getExtendsList()) {
+                Integer parentId = ids.get(parent);
+                if (parentId != null) engine.addEdge(ids.get(window), parentId);
+            }
+        }
+    }
+
+    public void start() {
+        AppExecutorUtil.getAppExecutorService().execute(this::run);
+    }
+
+    /**
+     * Stops the window moving from wherever it is now.
+     */
+    public void pin(EditorWindow window) {
+        // Nothing would pick it up.
+        if (finished) return;
+        Integer id = ids.get(window);
+        if (id == null) return;
+        var location = window.getTrueLocation();
+        pins.add(new Pin(id, location.x, location.y));
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void run() {
+        try {
+            settle();
+        } catch (Throwable e) {
+            // Otherwise the windows would just stop moving, with nothing to say why.
+            core.log.warn(() -> "Force layout of " + windows.size() + " windows failed: " + e);
+            LOG.warn("Force layout of " + windows.size() + " windows failed", e);
+        } finally {
+            finished = true;
+            pins.clear();
+        }
+    }
+
+    private void settle() {
+        var event = new PlaneEvents.LayoutRun();
+        event.begin();
+        long start = System.nanoTime();
+        long lastPost = start;
+        int steps = 0;
+        while (!cancelled && steps < MAX_STEPS && !engine.isSettled()) {
+            Pin pin;
+            while ((pin = pins.poll()) != null) {
+                engine.pin(pin.id, pin.x, pin.y);
+            }
+            engine.step();
+            steps++;
+
+            if (System.nanoTime() - lastPost > POST_NANOS) {
+                post(engine.getPositions());
+                lastPost = System.nanoTime();
+            }
+        }
+        if (cancelled) return;
+        post(engine.getPositions());
+        if (event.shouldCommit()) {
+            event.mode = Layout.Mode.FORCE.name();
+            event.windowCount = windows.size();
+            event.commit();
+        }
+        int totalSteps = steps;
+        core.log.info(() -> "Force layout settled after " + totalSteps + " steps in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    private void post(Point2D.Double[] positions) {
+        AppUIExecutor.onUiThread().expireWith(core.disposer).execute(() -> {
+            if (cancelled) return;
+            for (int i = 0; i < windows.size(); i++) {
+                var window = windows.get(i);
+                // Being dragged, or already dropped somewhere by hand.
+                if (core.layout.isPinned(window)) continue;
+                // It may have been deleted while we were working it out.
+                if (core.editorWindowManager.windowFor(window.getVirtualFile()) != window) continue;
+                window.setLocation(positions[i].x, positions[i].y);
+            }
+            core.background.repaint();
+        });
+    }
+
+    private static class Pin {
+        final int id;
+        final double x;
+        final double y;
+
+        Pin(int id, double x, double y) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package main.components;
 
+import com.intellij.openapi.application.AppUIExecutor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import main.core.Core;
-import main.util.MyUtils;
+import main.util.ForestLayout;
+import main.util.PlaneEvents;
 
 import java.awt.geom.Point2D;
-import java.awt.geom.Rectangle2D;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Arranges every window, in one of two ways.
+ * <p>
+ * As a hierarchy, classes sit underneath the classes they extend. The hierarchy and window sizes are copied
+ * on the EDT, the ForestLayout is worked out on a pooled thread, and then every window is moved in one go
+ * back on the EDT.
+ * <p>
+ * By force, windows spread out from wherever they are with related classes pulled together, which suits
+ * projects with lots of small hierarchies. That runs in the background until it settles, and anything the
+ * user drags in the meantime stays where it's put.
+ */
 public class Layout {
-    public final List<Box> rootBoxes = new ArrayList<>();
-    protected final Set<EditorWindow> alreadyProcessed = new HashSet<>();
-    public double initialZoomLevel = 0;
+    private static final Logger LOG = Logger.getInstance(Layout.class);
+    // Used when the background hasn't been sized yet.
+    private static final double DEFAULT_ASPECT = 2.0;
+
+    public enum Mode {
+        HIERARCHY,
+        FORCE
+    }
+
+    private final Set<EditorWindow> pinned = new HashSet<>();
+    private ForceLayoutRunner forceRunner = null;
+    // Bumped every run, so a hierarchy that finishes after something newer has started is thrown away.
+    private int run = 0;
 
     public double getSpacing() {
-        return 100 * core.zoomPanHandler.getCurrentZoom();
+        return 100;
     }
 
     private final Core core;
@@ -21,136 +46,145 @@ public class Layout {
         this.core = core;
     }
 
-    public void layAllWindowsOut() {
-        initialZoomLevel = core.zoomPanHandler.getCurrentZoom();
+    public Mode getMode() {
+        return core.settingsManager.loadLayoutMode();
+    }
 
-        for (var editor : core.editorWindowManager.getWindows()) {
-            // We only process directly those which aren't under anything
-            if (!editor.extendsList.isEmpty()) continue;
+    /**
+     * Switches to the given way of laying windows out, and lays them all out again with it.
+     */
+    public void setMode(Mode mode) {
+        core.settingsManager.saveLayoutMode(mode);
+        if (core.isLoading()) return;
+        layAllWindowsOut();
+    }
 
-            rootBoxes.add(new Box(editor));
+    public void layAllWindowsOut() {
+        long start = core.metrics.layout.start();
+        run++;
+        // Asked for again, so everything gets a fresh place, including anything dragged during the last run.
+        pinned.clear();
+        if (getMode() == Mode.FORCE) {
+            layOutByForce();
+        } else {
+            layOutAsHierarchy();
         }
+        core.metrics.layout.stop(start);
+    }
 
-        double xMid = -core.getWorld().getLocation().x + 500;
-        double yMid = -core.getWorld().getLocation().y + 500;
+    /**
+     * Called as the user drags a window, so a running force layout stops moving it for the rest of that run.
+     */
+    public void windowDragged(EditorWindow window) {
+        pinned.add(window);
+        if (forceRunner != null) forceRunner.pin(window);
+    }
 
-        for (Box box : rootBoxes) {
-            // Just so the boxes have a notion of width and height before the next stage.
-            box.setPosition(new Point2D.Double(xMid, yMid));
-        }
+    public boolean isPinned(EditorWindow window) {
+        return pinned.contains(window);
+    }
 
-        double W_H_RATIO = 2.0;
-        double numAttemptsScalar = 20;
-
-        MyUtils.log(core, "Laying windows out ... " + rootBoxes.size());
-
-        List<Box> toAddToPlane = new ArrayList<>(rootBoxes);
-        List<Box> alreadyOnPlane = new ArrayList<>();
-        toAddToPlane.sort(Comparator.comparingInt((t) -> t.windowsIn.size()));
-        double radius = 0;
-        while (toAddToPlane.size() > 0) {
-            // Pick a random angle
-            double angle = Math.random() * Math.PI * 2;
-            var boxRectA = new Rectangle2D.Double();
-            var boxRectB = new Rectangle2D.Double();
-            for (var box : new ArrayList<>(toAddToPlane)) {
-                // Find possible location for box.
-                double newRadius = radius;// + Math.sqrt(box.width*box.width/4 + box.height*box.height/4)
-                double x = newRadius * Math.cos(angle) * W_H_RATIO + xMid;
-                double y = newRadius * Math.sin(angle) + yMid;
-
-                boxRectA.setRect(x, y, box.width, box.height);
-                boolean collided = false;
-                for (var collideBox : alreadyOnPlane) {
-                    boxRectB.setRect(
-                            collideBox.position.getX() - getSpacing(),
-                            collideBox.position.getY() - getSpacing(),
-                            collideBox.width + getSpacing() * 2,
-                            collideBox.height + getSpacing() * 2
-                    );
-                    if (boxRectA.intersects(boxRectB)) {
-                        collided = true;
-                    }
-                }
-
-                if (!collided) {
-                    MyUtils.log(core, "Set window position to " + x + " " + y);
-                    box.setPosition(new Point2D.Double(x, y));
-                    alreadyOnPlane.add(box);
-                    toAddToPlane.remove(box);
-                    break;
-                }
-            }
-            radius += getSpacing() / numAttemptsScalar;
-        }
+    public void windowRemoved(EditorWindow window) {
+        pinned.remove(window);
     }
 
-    public class Box {
-        public EditorWindow parent;
-        public List<Box> children = new ArrayList<>();
-        public List<EditorWindow> windowsIn = new ArrayList<>();
+    public void dispose() {
+        cancelForceLayout();
+    }
+
+    private void layOutByForce() {
+        cancelForceLayout();
+        var windows = new ArrayList<>(core.editorWindowManager.getWindows());
+        windows.sort(Comparator.comparing(window -> window.getVirtualFile().getPath()));
+        core.log.debug(() -> "Laying windows out by force ... " + windows.size());
 
-        public double width = 0;
-        public double height = 0;
-        public Point2D position;
+        forceRunner = new ForceLayoutRunner(core, windows, getSpacing());
+        forceRunner.start();
+    }
 
-        public Box(EditorWindow parent) {
-            initialise(parent, this);
+    private void cancelForceLayout() {
+        if (forceRunner != null) {
+            forceRunner.cancel();
+            forceRunner = null;
         }
+    }
 
-        private Box(EditorWindow parent, Box root) {
-            initialise(parent, root);
+    private void layOutAsHierarchy() {
+        cancelForceLayout();
+        if (core.clusterManager.isClustered()) {
+            // Each package keeps to its own area of the plane.
+            core.clusterManager.layOutExpanded();
+            return;
         }
+        layOut(core.editorWindowManager.getWindows(), core.zoomPanHandler.toWorld(new Point2D.Double(500, 500)), getAspect());
+    }
 
-        private void initialise(EditorWindow parent, Box root) {
-            windowsIn.add(parent);
-            this.parent = parent;
-            for (var child : parent.extendsMeList) {
-                if (alreadyProcessed.contains(child)) continue;
-                alreadyProcessed.add(child);
-                Box childBox = new Box(child, root);
-                children.add(childBox);
-                windowsIn.addAll(childBox.windowsIn);
+    /**
+     * Lays out just the given windows as a hierarchy, leaving everything else where it is.
+     *
+     * @param origin Where the top left of the layout goes, in world coordinates.
+     * @param aspect The width over the height wanted for the whole layout.
+     */
+    public void layOut(List<EditorWindow> toLayOut, Point2D origin, double aspect) {
+        var windows = new ArrayList<>(toLayOut);
+        // Whatever order the files loaded in, the same project always gets the same layout.
+        windows.sort(Comparator.comparing(window -> window.getVirtualFile().getPath()));
+
+        var engine = new ForestLayout(getSpacing(), aspect);
+        var ids = new HashMap<EditorWindow, Integer>();
+        for (var window : windows) {
+            ids.put(window, engine.addNode(window.getWidth(), window.getHeight()));
+        }
+        for (var window : windows) {
+            for (var parent : window.getExtendsList()) {
+                Integer parentId = ids.get(parent);
+                if (parentId != null) engine.addEdge(ids.get(window), parentId);
             }
         }
 
-        public void setPosition(Point2D position) {
-            this.position = position;
-            if (children.isEmpty()) {
-                parent.setLocation(position.getX(), position.getY());
-                width = parent.getWidth();
-                height = parent.getHeight();
-            } else {
-                double x = position.getX();
-                double y = position.getY() + parent.getHeight() + getSpacing();
-                double maxChildHeight = 0;
-                for (var child : children) {
-                    child.setPosition(new Point2D.Double(x, y));
-                    x += child.width + getSpacing();
-                    if (maxChildHeight < child.height) maxChildHeight = child.height;
-                }
-                width = x - position.getX() - getSpacing();
-
-                if (parent.getWidth() > width) {
-                    width = parent.getWidth();
-                }
-
-                height = maxChildHeight + parent.getHeight() + getSpacing();
-
-                double newYSpacing = width / 20;
-                if (newYSpacing > getSpacing()) {
-                    double newY = position.getY() + parent.getHeight() + newYSpacing;
-                    double newX = position.getX();
-                    for (var child : children) {
-                        child.setPosition(new Point2D.Double(newX, newY));
-                        newX += child.width + getSpacing();
+        core.log.debug(() -> "Laying windows out ... " + windows.size());
+
+        int thisRun = run;
+        CompletableFuture.supplyAsync(() -> {
+                    long start = core.metrics.layoutCompute.start();
+                    var event = new PlaneEvents.LayoutRun();
+                    event.begin();
+                    var positions = engine.compute();
+                    core.metrics.layoutCompute.stop(start);
+                    if (event.shouldCommit()) {
+                        event.mode = Mode.HIERARCHY.name();
+                        event.windowCount = windows.size();
+                        event.commit();
                     }
+                    return positions;
+                }, AppExecutorUtil.getAppExecutorService())
+                .thenAccept(positions -> AppUIExecutor.onUiThread().expireWith(core.disposer).execute(() -> {
+                    if (run == thisRun) apply(windows, positions, origin);
+                }))
+                .whenComplete((ignored, error) -> {
+                    if (error == null) return;
+                    // Otherwise the windows would just never move, with nothing to say why.
+                    core.log.warn(() -> "Laying out " + windows.size() + " windows failed: " + error);
+                    LOG.warn("Laying out " + windows.size() + " windows failed", error);
+                });
+    }
 
-                    height = maxChildHeight + parent.getHeight() + newYSpacing;
-                }
+    /**
+     * Packs the hierarchies to the shape of the view, so everything fits on screen once zoomed out.
+     */
+    private double getAspect() {
+        if (core.background == null || core.background.getHeight() == 0) return DEFAULT_ASPECT;
+        return (double) core.background.getWidth() / core.background.getHeight();
+    }
 
-                parent.setLocation(width / 2 - parent.getWidth() / 2.0 + position.getX(), position.getY());
-            }
+    private void apply(List<EditorWindow> windows, Point2D.Double[] positions, Point2D origin) {
+        for (int i = 0; i < windows.size(); i++) {
+            var window = windows.get(i);
+            // It may have been deleted while we were working it out.
+            if (core.editorWindowManager.windowFor(window.getVirtualFile()) != window) continue;
+            window.setLocation(origin.getX() + positions[i].x, origin.getY() + positions[i].y);
         }
+        core.log.info(() -> "Laid out " + windows.size() + " windows");
+        core.background.repaint();
     }
 }
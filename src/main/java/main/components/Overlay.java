@@ -1,5 +1,6 @@
 package main.components;
 
+import com.intellij.openapi.editor.colors.EditorFontType;
 import main.core.Colors;
 import main.core.Core;
 import main.core.Tutorial;
@@ -9,14 +10,21 @@ import main.util.PsiModifier;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 
 public class Overlay extends JComponent {
+    private static final int HUD_REFRESH_MILLIS = 500;
+    private static final int HUD_PADDING = 8;
+
     // Relative to the screen
     public final int diam = 50;
     private final Point mouseLoc = new Point();
     public Point overlayCircleLocation = null;
     public boolean circleHovered = false;
     public boolean isDragging = false;
+    private boolean showingHud = false;
+    // Nothing else repaints the overlay while the plane sits still, but the numbers can still change.
+    private final Timer hudTimer = new Timer(HUD_REFRESH_MILLIS, e -> repaint());
 
     private final Core core;
     public Overlay(Core core) {
@@ -25,6 +33,25 @@ public class Overlay extends JComponent {
         setFocusable(false);
     }
 
+    /**
+     * Shows or hides the performance numbers in the corner. They start from scratch every time they're shown.
+     */
+    public void toggleHud() {
+        showingHud = !showingHud;
+        if (showingHud) {
+            core.metrics.reset();
+            hudTimer.start();
+        } else {
+            core.log.info(() -> String.join("\n", core.metrics.describe()));
+            hudTimer.stop();
+        }
+        repaint();
+    }
+
+    public void dispose() {
+        hudTimer.stop();
+    }
+
     public void mouseMoved(MouseEvent e) {
         int eventID = e.getID();
         if (overlayCircleLocation == null || core.editorWindowManager.getSelectedEditor() == null) return;
@@ -70,7 +97,7 @@ public class Overlay extends JComponent {
             g.setColor(Colors.background().darker());
             g.fillRect(0, 0, getWidth(), getHeight());
             g.setColor(Colors.text());
-            g.drawString(core.loadingString, getWidth() / 2, getHeight() / 2);
+            g.drawString(core.planeLoader.getStatus(), getWidth() / 2, getHeight() / 2);
             setOpaque(true);
             setFocusable(true);
         } else {
@@ -108,9 +135,38 @@ public class Overlay extends JComponent {
             MyUtils.drawArrowLine(g, p.x, p.y, q.x, q.y);
         }
 
+        if (showingHud) paintHud(g);
+
         ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
     }
 
+    private void paintHud(Graphics g) {
+        var lines = new ArrayList<String>();
+        lines.add(String.format("Windows %d   Live editors %d   Snapshots %.1f / %.0f MB",
+                core.editorWindowManager.getWindows().size(),
+                core.editorPool.getLiveCount(),
+                core.snapshotStore.getCurrentBytes() / 1e6,
+                core.snapshotStore.getBudgetBytes() / 1e6));
+        lines.add(String.format("%-26s %7s %8s %8s %8s", "", "count", "p50 ms", "p95 ms", "max ms"));
+        for (var timer : core.metrics.getTimers()) {
+            lines.add(String.format("%-26s %7d %8.2f %8.2f %8.2f", timer.getName(), timer.getCount(),
+                    timer.percentileNanos(0.5) / 1e6, timer.percentileNanos(0.95) / 1e6, timer.getMaxNanos() / 1e6));
+        }
+
+        g.setFont(Colors.getColorScheme().getFont(EditorFontType.PLAIN));
+        var metrics = g.getFontMetrics();
+        int width = 0;
+        for (var line : lines) width = Math.max(width, metrics.stringWidth(line));
+        int height = lines.size() * metrics.getHeight();
+
+        g.setColor(Colors.hudBackground());
+        g.fillRect(0, 0, width + HUD_PADDING * 2, height + HUD_PADDING * 2);
+        g.setColor(Colors.text());
+        for (int i = 0; i < lines.size(); i++) {
+            g.drawString(lines.get(i), HUD_PADDING, HUD_PADDING + i * metrics.getHeight() + metrics.getAscent());
+        }
+    }
+
     @Override
     public boolean contains(int x, int y) {
         return false;
@@ -0,0 +1,147 @@
+package main.components;
+
+import main.core.Core;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+
+/**
+ * Draws every still window straight onto the background in a single pass, and works out which window
+ * the mouse is over without needing a component per window.
+ * <p>
+ * Only the window being edited is a real component, see Viewport.mount().
+ */
+public class PlaneRenderer {
+    // The window the mouse was last over, used to fake enter and exit events.
+    private EditorWindow lastHit = null;
+    // The still currently being dragged around by its header, if any.
+    private EditorWindow dragging = null;
+
+    private final Core core;
+    public PlaneRenderer(Core core) {
+        this.core = core;
+    }
+
+    public void paint(Graphics2D g) {
+        double zoom = core.zoomPanHandler.getCurrentZoom();
+        var level = DetailLevel.current(core);
+        var transform = g.getTransform();
+        var visible = core.viewport.getVisibleArea();
+        if (level == DetailLevel.SNAPSHOT) core.snapshotStore.prefetchAround(visible);
+        for (var window : core.viewport.windowsIn(visible)) {
+            // Mounted windows paint themselves on top.
+            if (core.viewport.isMounted(window)) continue;
+            if (level == DetailLevel.SNAPSHOT) {
+                // The first time a window is seen up close is when it gets a snapshot.
+                if (!window.hasSnapshot()) core.snapshotScheduler.markStale(window);
+                // Evicted, so it's an outline until the store brings it back.
+                else if (!window.isSnapshotLoaded()) core.snapshotStore.touched(window);
+                if (core.snapshotScheduler.isStale(window)) core.snapshotScheduler.wake();
+            }
+
+            var screen = core.zoomPanHandler.toScreen(window.getBounds());
+            var insets = window.getTitleBorder().getBorderInsets(window);
+
+            // The border is a few simple shapes, so it's fine to let the transform scale it.
+            g.translate(screen.x, screen.y);
+            g.scale(zoom, zoom);
+            window.getTitleBorder().paintBorder(window, g, 0, 0, window.getWidth(), window.getHeight());
+            g.setTransform(transform);
+
+            // Whereas the snapshot is drawn from the matching mipmap level without any scaling.
+            int snapshotX = screen.x + (int) (insets.left * zoom);
+            int snapshotY = screen.y + (int) (insets.top * zoom);
+            int contentWidth = screen.x + screen.width - (int) (insets.right * zoom) - snapshotX;
+            int contentHeight = screen.y + screen.height - (int) (insets.bottom * zoom) - snapshotY;
+            if (level == DetailLevel.SNAPSHOT && window.isSnapshotLoaded()) {
+                window.paintSnapshot(g, snapshotX, snapshotY);
+            } else if (level == DetailLevel.BOX) {
+                core.detailRenderer.paintBox(g, window, snapshotX, snapshotY, contentWidth, contentHeight);
+                window.paintOverlays(g, snapshotX, snapshotY, contentWidth, contentHeight);
+            } else if (level == DetailLevel.SUMMARY && core.summaryRenderer.paint(g, window, snapshotX, snapshotY, contentWidth, contentHeight)) {
+                window.paintOverlays(g, snapshotX, snapshotY, contentWidth, contentHeight);
+            } else {
+                // Also stands in for a snapshot that hasn't been made yet.
+                core.detailRenderer.paintOutline(g, window, snapshotX, snapshotY, contentWidth, contentHeight, zoom);
+                window.paintOverlays(g, snapshotX, snapshotY, contentWidth, contentHeight);
+            }
+
+            if (window.isSelected && zoom != 1.0) {
+                var p = core.background.getLocationOnScreen();
+                p.translate(screen.x + screen.width / 2, (snapshotY + screen.y + screen.height) / 2);
+                core.overlay.overlayCircleLocation = p;
+                core.overlay.repaint();
+            }
+        }
+    }
+
+    /**
+     * @param backgroundPoint A point relative to the background.
+     */
+    public EditorWindow windowAt(Point backgroundPoint) {
+        var world = core.zoomPanHandler.toWorld(backgroundPoint);
+        return core.viewport.windowAt(new Point((int) Math.floor(world.x), (int) Math.floor(world.y)));
+    }
+
+    /**
+     * Handles any mouse event that landed on the background rather than on a mounted window.
+     */
+    public void mouseEvent(MouseEvent e) {
+        var manager = core.editorWindowManager;
+        switch (e.getID()) {
+            case MouseEvent.MOUSE_MOVED:
+            case MouseEvent.MOUSE_DRAGGED:
+                if (dragging != null && dragging.isDragging) {
+                    dragging.dragTo(e.getLocationOnScreen());
+                    manager.mouseMovedInWindow(dragging);
+                    return;
+                }
+                var hit = windowAt(e.getPoint());
+                if (hit != lastHit) {
+                    if (lastHit != null) manager.mouseExited(lastHit);
+                    if (hit != null) manager.mouseEntered(hit);
+                    lastHit = hit;
+                }
+                if (hit != null) {
+                    manager.mouseMovedInWindow(hit);
+                } else {
+                    manager.mouseMovedOnBackground();
+                }
+                break;
+            case MouseEvent.MOUSE_PRESSED:
+                if (core.overlay.circleHovered) return;
+                if (e.getButton() == 1) {
+                    dragging = windowAt(e.getPoint());
+                    if (dragging != null) {
+                        dragging.startDrag(e.getLocationOnScreen());
+                    }
+                }
+                break;
+            case MouseEvent.MOUSE_RELEASED:
+                if (e.getButton() == 1 && dragging != null) {
+                    dragging.isDragging = false;
+                    dragging = null;
+                }
+                break;
+            case MouseEvent.MOUSE_CLICKED:
+                var clicked = windowAt(e.getPoint());
+                if (clicked != null) {
+                    manager.mouseClickedInWindow(clicked);
+                } else {
+                    var cluster = core.clusterManager.collapsedAt(core.zoomPanHandler.toWorld(e.getPoint()));
+                    if (cluster != null) {
+                        core.clusterManager.expand(cluster);
+                    } else {
+                        manager.mouseClickedOnBackground();
+                    }
+                }
+                break;
+            case MouseEvent.MOUSE_EXITED:
+                if (lastHit != null) {
+                    manager.mouseExited(lastHit);
+                    lastHit = null;
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package main.components;
+
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
+import com.intellij.psi.search.PackageScope;
+import com.intellij.psi.search.ProjectScope;
+import com.intellij.psi.search.scope.packageSet.NamedScopesHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Which part of the project the plane shows. Only files in the scope are loaded, so for a big project the
+ * plane costs as much as the part being looked at, not the whole codebase.
+ * <p>
+ * Scopes are saved by name, so one that's gone since (a deleted module, say) just comes up empty.
+ */
+public class PlaneScope {
+    public enum Kind {
+        PROJECT,
+        MODULE,
+        PACKAGE,
+        NAMED_SCOPE,
+        UNCOMMITTED_CHANGES
+    }
+
+    public static final PlaneScope WHOLE_PROJECT = new PlaneScope(Kind.PROJECT, "");
+
+    private final Kind kind;
+    private final String name;
+
+    /**
+     * @param name The module, package or named scope, and ignored for the others.
+     */
+    public PlaneScope(Kind kind, String name) {
+        this.kind = kind;
+        this.name = name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return Something short for the user to recognise the scope by.
+     */
+    public String describe() {
+        switch (kind) {
+            case MODULE:
+                return "Module " + name;
+            case PACKAGE:
+                return "Package " + name;
+            case NAMED_SCOPE:
+                return "Scope " + name;
+            case UNCOMMITTED_CHANGES:
+                return "Uncommitted changes";
+            default:
+                return "Whole project";
+        }
+    }
+
+    public String serialize() {
+        return kind.name() + ":" + name;
+    }
+
+    public static PlaneScope parse(String serialized) {
+        int split = serialized.indexOf(':');
+        if (split == -1) return WHOLE_PROJECT;
+        try {
+            return new PlaneScope(Kind.valueOf(serialized.substring(0, split)), serialized.substring(split + 1));
+        } catch (IllegalArgumentException e) {
+            return WHOLE_PROJECT;
+        }
+    }
+
+    /**
+     * Needs a read action.
+     *
+     * @return Every file in the scope that's part of the project's own content.
+     */
+    public Collection<VirtualFile> files(Project project) {
+        var fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+        var result = new ArrayList<VirtualFile>();
+        if (kind == Kind.UNCOMMITTED_CHANGES) {
+            // Only what's changed in the working copy, anything already committed on the branch isn't included.
+            // Usually a handful of files, so there's no need to walk the whole project for them.
+            for (var file : ChangeListManager.getInstance(project).getAffectedFiles()) {
+                if (file.isValid() && !file.isDirectory() && fileIndex.isInContent(file)) result.add(file);
+            }
+            return result;
+        }
+
+        var searchScope = toSearchScope(project);
+        if (searchScope == null) return result;
+        fileIndex.iterateContent(file -> {
+            if (!file.isDirectory() && searchScope.contains(file)) result.add(file);
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * @return The named scopes the user can pick from, both the project's shared ones and their own.
+     */
+    public static List<String> namedScopes(Project project) {
+        var names = new ArrayList<String>();
+        for (var holder : NamedScopesHolder.getAllNamedScopeHolders(project)) {
+            for (var scope : holder.getScopes()) {
+                if (scope.getValue() != null && !names.contains(scope.getName())) names.add(scope.getName());
+            }
+        }
+        return names;
+    }
+
+    private GlobalSearchScope toSearchScope(Project project) {
+        switch (kind) {
+            case MODULE:
+                var module = ModuleManager.getInstance(project).findModuleByName(name);
+                return module == null ? null : GlobalSearchScope.moduleScope(module);
+            case PACKAGE:
+                var psiPackage = JavaPsiFacade.getInstance(project).findPackage(name);
+                return psiPackage == null ? null : PackageScope.packageScope(psiPackage, true);
+            case NAMED_SCOPE:
+                var namedScope = NamedScopesHolder.getScope(project, name);
+                return namedScope == null ? null : GlobalSearchScopesCore.filterScope(project, namedScope);
+            default:
+                return ProjectScope.getAllScope(project);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package main.components;
+
+import main.core.Core;
+
+import javax.swing.*;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Rebuilds out of date snapshots a few at a time rather than all at once.
+ * <p>
+ * Windows are marked stale when their document changes, so any number of edits to the same window only
+ * rebuild it once. Each frame, stale windows that are on screen are rebuilt until the frame's time budget
+ * is used up. Off-screen windows wait until they're scrolled into view, and nothing is rebuilt while zoomed
+ * too far out for snapshots to be drawn, see DetailLevel.
+ */
+public class SnapshotScheduler {
+    private static final int FRAME_MILLIS = 16;
+    // Roughly half a frame, leaving the rest for painting and input.
+    private static final long FRAME_BUDGET_NANOS = 8_000_000;
+
+    private final Set<EditorWindow> stale = new LinkedHashSet<>();
+    private final Timer timer;
+    private boolean trimPending = false;
+
+    private final Core core;
+    public SnapshotScheduler(Core core) {
+        this.core = core;
+        timer = new Timer(FRAME_MILLIS, e -> tick());
+        timer.setRepeats(true);
+    }
+
+    public void markStale(EditorWindow window) {
+        if (window.isEditor()) return;
+        stale.add(window);
+        // While hidden it just waits, the renderer wakes us once it's painted again.
+        if (core.toolWindow.isVisible()) wake();
+    }
+
+    /**
+     * Has the SnapshotStore get back under budget once whatever's running now is done, which may be
+     * in the middle of painting. Any number of calls before then only trim once.
+     */
+    public void trimLater() {
+        if (trimPending) return;
+        trimPending = true;
+        SwingUtilities.invokeLater(() -> {
+            trimPending = false;
+            core.snapshotStore.trim();
+        });
+    }
+
+    public boolean isStale(EditorWindow window) {
+        return stale.contains(window);
+    }
+
+    public void removed(EditorWindow window) {
+        stale.remove(window);
+    }
+
+    /**
+     * Makes sure stale windows that have just come into view get rebuilt.
+     */
+    public void wake() {
+        if (!stale.isEmpty() && !timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    public void dispose() {
+        timer.stop();
+        stale.clear();
+    }
+
+    private void tick() {
+        if (DetailLevel.current(core) != DetailLevel.SNAPSHOT) {
+            // The renderer wakes us once snapshots are being drawn again.
+            timer.stop();
+            return;
+        }
+        long start = System.nanoTime();
+        int rebuilt = 0;
+        boolean anyVisible = false;
+
+        for (var window : core.viewport.windowsIn(core.viewport.getVisibleArea())) {
+            if (!stale.contains(window)) continue;
+            anyVisible = true;
+            if (System.nanoTime() - start > FRAME_BUDGET_NANOS) break;
+
+            stale.remove(window);
+            // It may have become the current editor since being marked, in which case it's already up to date.
+            if (!window.isEditor()) {
+                window.rebuildSnapshot();
+                rebuilt++;
+            }
+        }
+
+        if (rebuilt > 0) {
+            int total = rebuilt;
+            core.log.debug(() -> "Rebuilt " + total + " snapshots, " + stale.size() + " still stale");
+        }
+        if (!anyVisible) {
+            // Everything left is off screen. The renderer wakes us when any of it comes into view.
+            timer.stop();
+        }
+    }
+}
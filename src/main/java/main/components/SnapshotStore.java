@@ -0,0 +1,270 @@
+package main.components;
+
+import com.intellij.openapi.application.AppUIExecutor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import main.core.Core;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the total size of every window's snapshot under a byte budget.
+ * <p>
+ * Windows on screen (and those most recently on screen) keep their raw snapshot.
+ * Once over budget, the least recently painted off-screen snapshots are PNG-encoded,
+ * and if that still isn't enough the oldest encoded ones are dropped entirely and
+ * re-rasterized the next time their window is painted.
+ * <p>
+ * PNG is slow, so encoding and decoding both happen on pooled threads. Snapshots are decoded as they
+ * come near the screen, and anything painted before its snapshot is back is drawn as an outline.
+ */
+public class SnapshotStore {
+    public static final int DEFAULT_BUDGET_MB = 256;
+    private static final Logger LOG = Logger.getInstance(SnapshotStore.class);
+
+    // Access ordered, so iteration goes from least to most recently painted.
+    private final LinkedHashMap<EditorWindow, Long> raw = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<EditorWindow, byte[]> compressed = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<EditorWindow> dropped = new HashSet<>();
+    // Evicted but not encoded yet, so still there to hand straight back if they're painted in the meantime.
+    private final Map<EditorWindow, BufferedImage> encoding = new HashMap<>();
+    private final Set<EditorWindow> decoding = new HashSet<>();
+    private long rawBytes = 0;
+    private long encodingBytes = 0;
+    private long compressedBytes = 0;
+    private long peakBytes = 0;
+
+    private final Core core;
+    public SnapshotStore(Core core) {
+        this.core = core;
+    }
+
+    public long getBudgetBytes() {
+        return core.settingsManager.loadSnapshotBudgetMb() * 1024L * 1024L;
+    }
+
+    public long getCurrentBytes() {
+        return rawBytes + encodingBytes + compressedBytes;
+    }
+
+    public long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * Called whenever a window has just rasterized a fresh snapshot.
+     */
+    public void stored(EditorWindow window) {
+        forget(window);
+        long bytes = bytesOf(window.image);
+        raw.put(window, bytes);
+        rawBytes += bytes;
+        peakBytes = Math.max(peakBytes, getCurrentBytes());
+        trim();
+    }
+
+    /**
+     * Called whenever a window is painted.
+     * Starts restoring the snapshot if it was evicted, and marks it as the most recently used.
+     */
+    public void touched(EditorWindow window) {
+        if (raw.containsKey(window)) {
+            raw.get(window);
+            return;
+        }
+
+        BufferedImage unencoded = encoding.remove(window);
+        if (unencoded != null) {
+            // Still in memory, so it can go straight back. The encode finishing is ignored.
+            encodingBytes -= bytesOf(unencoded);
+            restore(window, unencoded);
+            return;
+        }
+
+        if (compressed.containsKey(window)) {
+            startDecoding(window);
+            return;
+        }
+
+        if (dropped.remove(window)) {
+            core.log.debug(() -> window + " - Re-rasterizing dropped snapshot");
+            // Can't rebuild from within a paint.
+            core.snapshotScheduler.markStale(window);
+        }
+    }
+
+    /**
+     * Starts decoding any compressed snapshots in or near the given area, so they're usually back before
+     * they're on screen.
+     *
+     * @param visible The visible area, in world coordinates.
+     */
+    public void prefetchAround(Rectangle visible) {
+        if (compressed.size() == decoding.size()) return;
+        var near = new Rectangle(visible.x - visible.width / 2, visible.y - visible.height / 2, visible.width * 2, visible.height * 2);
+        for (var window : core.viewport.windowsIn(near)) {
+            if (compressed.containsKey(window)) startDecoding(window);
+        }
+    }
+
+    /**
+     * Gets back under budget, by encoding the least recently painted snapshots off screen and then dropping
+     * the oldest encoded ones. Only run outside of painting, see {@link SnapshotScheduler#trimLater()}.
+     */
+    void trim() {
+        long budget = getBudgetBytes();
+        // Anything being encoded is already on its way out, so only what's left counts.
+        if (rawBytes + compressedBytes <= budget) return;
+
+        for (var window : new ArrayList<>(raw.keySet())) {
+            if (rawBytes + compressedBytes <= budget) break;
+            if (window.isEditor() || core.viewport.isOnScreen(window)) continue;
+
+            BufferedImage image = window.evictSnapshot();
+            rawBytes -= raw.remove(window);
+            startEncoding(window, image);
+        }
+
+        for (var window : new ArrayList<>(compressed.keySet())) {
+            if (rawBytes + compressedBytes <= budget) break;
+            if (decoding.contains(window)) continue;
+
+            compressedBytes -= compressed.remove(window).length;
+            dropped.add(window);
+        }
+
+        core.log.info(() -> "Trimmed snapshots to " + getCurrentBytes() + " bytes (peak " + peakBytes + ")");
+    }
+
+    public void removed(EditorWindow window) {
+        forget(window);
+    }
+
+    public void dispose() {
+        raw.clear();
+        compressed.clear();
+        dropped.clear();
+        encoding.clear();
+        decoding.clear();
+        rawBytes = 0;
+        encodingBytes = 0;
+        compressedBytes = 0;
+    }
+
+    private void forget(EditorWindow window) {
+        Long size = raw.remove(window);
+        if (size != null) rawBytes -= size;
+        BufferedImage unencoded = encoding.remove(window);
+        if (unencoded != null) encodingBytes -= bytesOf(unencoded);
+        byte[] bytes = compressed.remove(window);
+        if (bytes != null) compressedBytes -= bytes.length;
+        dropped.remove(window);
+        decoding.remove(window);
+    }
+
+    private void startEncoding(EditorWindow window, BufferedImage image) {
+        encoding.put(window, image);
+        encodingBytes += bytesOf(image);
+        inBackground(() -> encode(image), bytes -> {
+            // Painted or rebuilt while this was going, in which case the image isn't ours to flush any more.
+            if (encoding.get(window) != image) return;
+            encoding.remove(window);
+            encodingBytes -= bytesOf(image);
+            image.flush();
+            if (bytes != null) {
+                compressed.put(window, bytes);
+                compressedBytes += bytes.length;
+            } else {
+                dropped.add(window);
+            }
+        });
+    }
+
+    private void startDecoding(EditorWindow window) {
+        if (!decoding.add(window)) return;
+        byte[] bytes = compressed.get(window);
+        inBackground(() -> decode(bytes), image -> {
+            // Forgotten or rebuilt while this was going.
+            if (!decoding.remove(window) || compressed.get(window) != bytes) return;
+            compressed.remove(window);
+            compressedBytes -= bytes.length;
+            if (image == null) {
+                dropped.add(window);
+                core.snapshotScheduler.markStale(window);
+                return;
+            }
+            restore(window, image);
+            core.log.debug(() -> window + " - Restored compressed snapshot");
+            window.repaint();
+        });
+    }
+
+    private void restore(EditorWindow window, BufferedImage image) {
+        window.restoreSnapshot(image);
+        long size = bytesOf(image);
+        raw.put(window, size);
+        rawBytes += size;
+        peakBytes = Math.max(peakBytes, getCurrentBytes());
+        // Bringing enough of them back would go over the budget.
+        core.snapshotScheduler.trimLater();
+    }
+
+    /**
+     * Works something out on a pooled thread, then hands it over on the EDT.
+     */
+    private <T> void inBackground(Supplier<T> work, Consumer<T> then) {
+        CompletableFuture.supplyAsync(work, AppExecutorUtil.getAppExecutorService())
+                .thenAccept(result -> AppUIExecutor.onUiThread().expireWith(core.disposer).execute(() -> then.accept(result)));
+    }
+
+    private static long bytesOf(BufferedImage image) {
+        // 4 bytes per pixel, plus a third again for the mipmaps.
+        return image.getWidth() * (long) image.getHeight() * 4 * 4 / 3;
+    }
+
+    private byte[] encode(BufferedImage image) {
+        var out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            failed("encode", e);
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    private BufferedImage decode(byte[] bytes) {
+        try {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (decoded == null || decoded.getType() == BufferedImage.TYPE_INT_RGB) return decoded;
+
+            // PNG decodes into whatever layout it likes, so convert back to match rebuildImage().
+            BufferedImage image = new BufferedImage(decoded.getWidth(), decoded.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.drawImage(decoded, 0, 0, null);
+            g.dispose();
+            decoded.flush();
+            return image;
+        } catch (IOException e) {
+            failed("decode", e);
+            return null;
+        }
+    }
+
+    /**
+     * The snapshot just gets dropped and rebuilt, so this is only worth a warning.
+     */
+    private void failed(String what, IOException e) {
+        core.log.warn(() -> "Couldn't " + what + " snapshot: " + e);
+        LOG.warn("Couldn't " + what + " snapshot", e);
+    }
+}
@@ -0,0 +1,129 @@
+package main.components;
+
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import main.core.Colors;
+import main.core.Core;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Draws a window at mid zoom as just its class's signature: the class name, then its fields, methods and
+ * inner classes, without any bodies.
+ * <p>
+ * The summary only uses what the PSI stubs already know (names and declared types, never getText() or text
+ * ranges), so it doesn't need the file's AST loading. It's kept as a few short strings per window until the
+ * PsiChangeProcessor says the file has changed, and drawn with a handful of cached fonts.
+ */
+public class SummaryRenderer {
+    private static final String INDENT = "  ";
+    private static final double LINE_SPACING = 1.3;
+    // Any smaller and the outline is more useful.
+    private static final int MIN_FONT_SIZE = 5;
+
+    private final Map<EditorWindow, List<String>> summaries = new HashMap<>();
+    private final Map<Integer, Font> fonts = new HashMap<>();
+    private Font baseFont = null;
+
+    private final Core core;
+    public SummaryRenderer(Core core) {
+        this.core = core;
+    }
+
+    /**
+     * @return Whether there was a summary to draw, and room to draw it.
+     */
+    public boolean paint(Graphics2D g, EditorWindow window, int x, int y, int width, int height) {
+        var lines = summaryOf(window);
+        if (lines.isEmpty()) return false;
+        if (baseFont == null) {
+            baseFont = Colors.getColorScheme().getFont(EditorFontType.PLAIN);
+        }
+
+        // The same size as the editor where there's room, so it reads like code does up close.
+        int size = (int) Math.min(baseFont.getSize(), height / (lines.size() * LINE_SPACING));
+        if (size < MIN_FONT_SIZE) return false;
+        var font = fonts.computeIfAbsent(size, s -> baseFont.deriveFont((float) s));
+
+        g.setColor(Colors.background());
+        g.fillRect(x, y, width, height);
+        var clip = g.getClip();
+        g.clipRect(x, y, width, height);
+        g.setFont(font);
+        var metrics = g.getFontMetrics();
+        int lineHeight = (int) Math.ceil(size * LINE_SPACING);
+        int padding = size / 2;
+        for (int i = 0; i < lines.size(); i++) {
+            g.setColor(i == 0 ? Colors.text() : Colors.summaryMember());
+            g.drawString(lines.get(i), x + padding, y + padding + i * lineHeight + metrics.getAscent());
+        }
+        g.setClip(clip);
+        return true;
+    }
+
+    /**
+     * Called by the PsiChangeProcessor once the window's file has changed.
+     */
+    public void invalidate(EditorWindow window) {
+        summaries.remove(window);
+    }
+
+    public void removed(EditorWindow window) {
+        summaries.remove(window);
+    }
+
+    private List<String> summaryOf(EditorWindow window) {
+        return summaries.computeIfAbsent(window, this::summarize);
+    }
+
+    private List<String> summarize(EditorWindow window) {
+        var lines = new ArrayList<String>();
+        if (!window.myPsiFile.isValid()) return lines;
+        for (var psiClass : window.myPsiFile.getClasses()) {
+            lines.add(header(psiClass));
+            for (var field : psiClass.getFields()) {
+                lines.add(INDENT + field.getType().getPresentableText() + " " + field.getName());
+            }
+            for (var method : psiClass.getMethods()) {
+                lines.add(INDENT + signature(method));
+            }
+            for (var inner : psiClass.getInnerClasses()) {
+                lines.add(INDENT + keyword(inner) + " " + inner.getName());
+            }
+        }
+        return lines;
+    }
+
+    private static String header(PsiClass psiClass) {
+        var header = keyword(psiClass) + " " + psiClass.getName();
+        var supers = Stream.of(psiClass.getExtendsListTypes())
+                .map(type -> type.getPresentableText())
+                .collect(Collectors.joining(", "));
+        return supers.isEmpty() ? header : header + " extends " + supers;
+    }
+
+    private static String keyword(PsiClass psiClass) {
+        if (psiClass.isEnum()) return "enum";
+        if (psiClass.isInterface()) return "interface";
+        return "class";
+    }
+
+    private static String signature(PsiMethod method) {
+        var parameters = Stream.of(method.getParameterList().getParameters())
+                .map(PsiParameter::getType)
+                .map(type -> type.getPresentableText())
+                .collect(Collectors.joining(", "));
+        // Constructors don't have one.
+        var returnType = method.getReturnType();
+        var prefix = returnType == null ? "" : returnType.getPresentableText() + " ";
+        return prefix + method.getName() + "(" + parameters + ")";
+    }
+}
@@ -2,7 +2,6 @@ package main.components;
 
 import com.intellij.util.ui.JBUI;
 import main.core.Colors;
-import main.core.Core;
 
 import javax.swing.border.Border;
 import java.awt.*;
@@ -10,18 +9,17 @@ import java.awt.*;
 public class TitleBorder implements Border {
     private final EditorWindow window;
 
-    private final Core core;
-    public TitleBorder(EditorWindow window, Core core) {
-        this.core = core;
+    public TitleBorder(EditorWindow window) {
         this.window = window;
     }
 
+    // Sizes are in world space, the PlaneRenderer scales the whole border when zoomed out.
     public int getDragHandleHeight() {
-        return (int) (20 * core.zoomPanHandler.getCurrentZoom());
+        return 20;
     }
 
     public int getCoreBorderWidth() {
-        return (int) (5 * core.zoomPanHandler.getCurrentZoom());
+        return 5;
     }
 
     @Override
@@ -0,0 +1,158 @@
+package main.components;
+
+import main.core.Core;
+import main.util.SpatialGrid;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Keeps track of where every window is, and which few windows are mounted as real components.
+ * <p>
+ * Every window's bounds are kept in a spatial index, so painting and hit-testing only ever look at
+ * the windows near the point or area in question. Stills are drawn straight onto the background by the
+ * PlaneRenderer, so the only windows mounted to the World are those with a live editor.
+ */
+public class Viewport {
+    // How many spots are tried before giving up and going beside everything instead.
+    private static final int MAX_FREE_SPOT_TRIES = 256;
+
+    private final SpatialGrid<EditorWindow> index = new SpatialGrid<>(1024);
+    private final Set<EditorWindow> mounted = new HashSet<>();
+
+    private final Core core;
+    public Viewport(Core core) {
+        this.core = core;
+    }
+
+    public void windowAdded(EditorWindow window) {
+        index.put(window, window.getBounds());
+    }
+
+    public void windowMoved(EditorWindow window) {
+        if (!index.contains(window)) return;
+        index.put(window, window.getBounds());
+    }
+
+    public void windowRemoved(EditorWindow window) {
+        index.remove(window);
+        unmount(window);
+    }
+
+    /**
+     * Adds the window to the World as a real component.
+     * Needed for anything with a live editor, as Swing won't lay out or dispatch events to a detached component.
+     */
+    public void mount(EditorWindow window) {
+        if (mounted.add(window)) {
+            // Keeps the layer given to it by EditorWindowManager.naturalOrdering().
+            core.getWorld().add(window);
+            core.getWorld().repaint();
+        }
+    }
+
+    public void unmount(EditorWindow window) {
+        if (mounted.remove(window)) {
+            core.getWorld().remove(window);
+            core.getWorld().repaint();
+        }
+    }
+
+    public boolean isMounted(EditorWindow window) {
+        return mounted.contains(window);
+    }
+
+    public int getMountedCount() {
+        return mounted.size();
+    }
+
+    public List<EditorWindow> getMounted() {
+        return new ArrayList<>(mounted);
+    }
+
+    /**
+     * @return The part of the world currently visible, in world coordinates.
+     */
+    public Rectangle getVisibleArea() {
+        return core.zoomPanHandler.getVisibleWorldArea();
+    }
+
+    public boolean isOnScreen(EditorWindow window) {
+        return window.getBounds().intersects(getVisibleArea());
+    }
+
+    /**
+     * @return Every window intersecting the area, bottom-most first.
+     */
+    public List<EditorWindow> windowsIn(Rectangle area) {
+        var windows = new ArrayList<>(index.query(area));
+        windows.sort(Comparator.comparingInt(window -> JLayeredPane.getLayer(window)));
+        return windows;
+    }
+
+    /**
+     * Finds the closest place to put the window where it won't overlap anything.
+     * <p>
+     * Only spots the index says could be free are tried: whenever one is blocked, the next ones to try are
+     * just past each side of whatever's in the way, nearest first. So it takes a handful of lookups however
+     * big the plane is, and after a fixed number it gives up and puts the window beside everything instead.
+     *
+     * @param near    Where the window's top left would ideally go, in world coordinates.
+     * @param spacing The gap to leave around the window.
+     * @return Where the window's top left should go.
+     */
+    public Point findFreeSpot(EditorWindow window, Point near, int spacing) {
+        int width = window.getWidth();
+        int height = window.getHeight();
+        var area = new Rectangle();
+        var candidates = new PriorityQueue<Point>(Comparator.comparingDouble(candidate -> candidate.distanceSq(near)));
+        var tried = new HashSet<Point>();
+        candidates.add(new Point(near));
+
+        while (!candidates.isEmpty() && tried.size() < MAX_FREE_SPOT_TRIES) {
+            var candidate = candidates.poll();
+            if (!tried.add(candidate)) continue;
+            area.setBounds(candidate.x - spacing, candidate.y - spacing, width + spacing * 2, height + spacing * 2);
+            boolean blocked = false;
+            for (var other : index.query(area)) {
+                if (other == window) continue;
+                blocked = true;
+                var b = index.getBounds(other);
+                candidates.add(new Point(b.x + b.width + spacing, candidate.y));
+                candidates.add(new Point(b.x - spacing - width, candidate.y));
+                candidates.add(new Point(candidate.x, b.y + b.height + spacing));
+                candidates.add(new Point(candidate.x, b.y - spacing - height));
+            }
+            if (!blocked) return candidate;
+        }
+        return besideEverything(window, near, spacing);
+    }
+
+    /**
+     * Just to the right of every other window, level with where it was wanted.
+     */
+    private Point besideEverything(EditorWindow window, Point near, int spacing) {
+        int right = near.x;
+        for (var other : core.editorWindowManager.getWindows()) {
+            if (other == window || !index.contains(other)) continue;
+            var b = index.getBounds(other);
+            right = Math.max(right, b.x + b.width + spacing);
+        }
+        return new Point(right, near.y);
+    }
+
+    /**
+     * @param worldPoint A point in world coordinates.
+     * @return The top-most window at that point, or null if there's nothing there.
+     */
+    public EditorWindow windowAt(Point worldPoint) {
+        var windows = windowsIn(new Rectangle(worldPoint.x, worldPoint.y, 1, 1));
+        return windows.isEmpty() ? null : windows.get(windows.size() - 1);
+    }
+}
@@ -2,36 +2,79 @@ package main.components;
 
 import main.core.Core;
 import main.core.Tutorial;
-import main.util.MyUtils;
+import main.util.PlaneEvents;
 
+import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.geom.Point2D;
 
+/**
+ * The camera onto the world.
+ * <p>
+ * Windows keep fixed world coordinates (their size at zoom 1.0), and a point on the background is
+ * {@code world * zoom + pan}, where the pan is the World component's location.
+ * Zooming and panning only ever change the camera, never the windows.
+ * <p>
+ * Zoom is continuous. Scrolling moves a target level, and a frame timer eases the current level towards it,
+ * keeping the point under the mouse still. Once scrolling stops the target is rounded to a whole level,
+ * so the plane always comes to rest where snapshots can be drawn without scaling.
+ */
 public class ZoomPanHandler {
-    private final Point2D.Double safetyPoint = new Point2D.Double(0, 0);
     public Point dragMouseStartLocation = null;
     public Point dragComponentStartLocation = null;
+    private static final int FRAME_MILLIS = 16;
+    // How much of the remaining distance to the target is covered each frame.
+    private static final double EASING = 0.3;
+    // Close enough to the target to stop animating.
+    private static final double SETTLE_DISTANCE = 0.01;
+    private static final int MAX_LEVEL = 7;
+
     // 1.0 is zoomed so text is normal size.
     // 0.5 is zoomed out.
     private float currentZoom = 1.0f;
-    private int zoomLevel;
+    // How many times the current zoom has halved from 1.0, not necessarily a whole number mid-animation.
+    private double zoomLevel;
+    private double targetLevel;
+    // The point under the mouse when it last scrolled, which stays put while zooming.
+    private final Point zoomAnchor = new Point();
+    private final Point2D.Double zoomAnchorWorld = new Point2D.Double();
+    private long lastScrollNanos;
+    private final Timer timer;
     private Core core;
 
     public float getCurrentZoom() {
         return currentZoom;
     }
 
+    /**
+     * @return The whole zoom level, rounded towards the sharper one while animating.
+     */
+    public int getZoomLevel() {
+        return (int) Math.floor(zoomLevel);
+    }
+
+    public boolean isAnimating() {
+        return timer.isRunning();
+    }
+
     public ZoomPanHandler(Core core) {
         this.core = core;
-        MyUtils.log(core, "Loading Zoom manager... ");
+        core.log.info(() -> "Loading Zoom manager... ");
         core.getWorld().setLocation(core.settingsManager.loadPan());
-        MyUtils.log(core, "Loaded pan " + core.getWorld().getLocation());
+        core.log.info(() -> "Loaded pan " + core.getWorld().getLocation());
         zoomLevel = core.settingsManager.loadScaleFromFile();
-        MyUtils.log(core, "Loaded scale " + zoomLevel);
+        targetLevel = zoomLevel;
+        core.log.info(() -> "Loaded scale " + zoomLevel);
         updateZoom();
+        timer = new Timer(FRAME_MILLIS, e -> tick());
+        timer.setRepeats(true);
+    }
+
+    public void dispose() {
+        timer.stop();
     }
 
     private void updateZoom() {
@@ -57,79 +100,146 @@ public class ZoomPanHandler {
                 int dY = dragMouseStartLocation.y - e.getYOnScreen();
                 Point loc = new Point(dragComponentStartLocation.x - dX, dragComponentStartLocation.y - dY);
                 core.getWorld().setLocation(loc);
-                core.settingsManager.savePan(loc);
+                core.positionStore.panChanged(loc);
                 Tutorial.doStep3(core);
-                MyUtils.log(core, "Just panned: New world location: " + core.getWorld().getLocation());
+                core.log.debug(() -> "Just panned: New world location: " + core.getWorld().getLocation());
             }
         } else if (eventID == MouseEvent.MOUSE_WHEEL) {
-            if (((MouseWheelEvent) e).getScrollType() == MouseWheelEvent.WHEEL_UNIT_SCROLL) {
-                scrolled(((MouseWheelEvent) e).getWheelRotation());
-            }
-
+            // Precise rotation covers both wheels and trackpads, which send lots of small fractional scrolls.
+            scrolled(((MouseWheelEvent) e).getPreciseWheelRotation());
         }
         core.overlay.mouseMoved(e);
     }
 
-    public void scrolled(int distance) {
+    public void scrolled(double distance) {
         if (core.globalListeners.isKeyPressed(KeyEvent.VK_CONTROL)) {
             zoomIn(distance);
         } else {
             int x = core.getWorld().getLocation().x;
             int y = core.getWorld().getLocation().y;
-            core.getWorld().setLocation(new Point(x, y - 60 * distance));
+            core.getWorld().setLocation(new Point(x, (int) Math.round(y - 60 * distance)));
         }
     }
 
-    public Point2D.Double getSafetyPoint() {
-        return safetyPoint;
+    /**
+     * @param world A point in world coordinates.
+     * @return The same point relative to the background.
+     */
+    public Point2D.Double toScreen(Point2D world) {
+        var pan = core.getWorld().getLocation();
+        return new Point2D.Double(world.getX() * currentZoom + pan.x, world.getY() * currentZoom + pan.y);
+    }
+
+    /**
+     * @param world An area in world coordinates.
+     * @return The same area relative to the background, rounded outwards to whole pixels.
+     */
+    public Rectangle toScreen(Rectangle world) {
+        var pan = core.getWorld().getLocation();
+        int x = (int) Math.floor(world.x * currentZoom) + pan.x;
+        int y = (int) Math.floor(world.y * currentZoom) + pan.y;
+        int maxX = (int) Math.ceil((world.x + world.width) * currentZoom) + pan.x;
+        int maxY = (int) Math.ceil((world.y + world.height) * currentZoom) + pan.y;
+        return new Rectangle(x, y, maxX - x, maxY - y);
+    }
+
+    /**
+     * @param screen A point relative to the background.
+     * @return The same point in world coordinates.
+     */
+    public Point2D.Double toWorld(Point2D screen) {
+        var pan = core.getWorld().getLocation();
+        return new Point2D.Double((screen.getX() - pan.x) / currentZoom, (screen.getY() - pan.y) / currentZoom);
+    }
+
+    /**
+     * @return The part of the world currently visible on the background, in world coordinates.
+     */
+    public Rectangle getVisibleWorldArea() {
+        var topLeft = toWorld(new Point(0, 0));
+        if (core.background == null) return new Rectangle((int) topLeft.x, (int) topLeft.y, 0, 0);
+        return new Rectangle(
+                (int) Math.floor(topLeft.x),
+                (int) Math.floor(topLeft.y),
+                (int) Math.ceil(core.background.getWidth() / currentZoom) + 1,
+                (int) Math.ceil(core.background.getHeight() / currentZoom) + 1
+        );
+    }
+
+    private void zoomIn(double distance) {
+        Point mouseLocation = MouseInfo.getPointerInfo().getLocation();
+        mouseLocation.translate(-core.background.getLocationOnScreen().x, -core.background.getLocationOnScreen().y);
+        zoomBy(distance, mouseLocation);
+    }
+
+    /**
+     * Zooms as if scrolled with the mouse at the given point, which stays where it is on screen.
+     *
+     * @param anchor Relative to the background.
+     */
+    public void zoomBy(double distance, Point anchor) {
+        long start = core.metrics.zoom.start();
+        try {
+            zoomTowards(distance, anchor);
+        } finally {
+            core.metrics.zoom.stop(start);
+        }
     }
 
-    private void zoomIn(int distance) {
-        MyUtils.log(core, "Zoom " + distance + " detected... isLoading:" + core.isLoading() + " canPerformActions:" + core.editorWindowManager.canPerformActions());
+    private void zoomTowards(double distance, Point anchor) {
+        core.log.debug(() -> "Zoom " + distance + " detected... isLoading:" + core.isLoading() + " canPerformActions:" + core.editorWindowManager.canPerformActions());
         if (!core.editorWindowManager.canPerformActions()) return;
         if (core.isLoading()) return;
 
-        float oldZoom = currentZoom;
-        zoomLevel += distance;
-        if (zoomLevel < 0) zoomLevel = 0;
-        if (zoomLevel > 7) zoomLevel = 7;
-        core.settingsManager.saveScale(zoomLevel);
-        updateZoom();
-        if (oldZoom == currentZoom) return;
+        double oldTarget = targetLevel;
+        targetLevel = Math.max(0, Math.min(MAX_LEVEL, targetLevel + distance));
+        if (oldTarget == targetLevel) return;
         Tutorial.doStep4(core);
 
-        Point zoomLocation = core.getWorld().getLocation();
-        zoomLocation.x *= -1;
-        zoomLocation.y *= -1;
-
-        Point mouseLocation = MouseInfo.getPointerInfo().getLocation();
-        zoomLocation.x += mouseLocation.x - core.background.getLocationOnScreen().x;
-        zoomLocation.y += mouseLocation.y - core.background.getLocationOnScreen().y;
+        zoomAnchor.setLocation(anchor);
+        zoomAnchorWorld.setLocation(toWorld(anchor));
+        lastScrollNanos = System.nanoTime();
 
+        // Only the window being edited is mounted, and it can't stay an editor away from zoom 1.0.
         core.editorWindowManager.allToStills();
+        if (!timer.isRunning()) timer.start();
+    }
 
-        Point2D.Double newSafetyPointLocation = calculateNewLoc(safetyPoint, zoomLocation, oldZoom);
-        safetyPoint.setLocation(newSafetyPointLocation);
-
-        for (var editorWindow : core.editorWindowManager.getWindows()) {
-            Point2D.Double newWindowLocation = calculateNewLoc(editorWindow.getTrueLocation(), zoomLocation, oldZoom);
-            editorWindow.setLocation(newWindowLocation.x, newWindowLocation.y);
-            editorWindow.zoomHasUpdated();
-            MyUtils.log(core, "Zoom: Set editor window to " + newWindowLocation);
+    private void tick() {
+        long start = core.metrics.zoomStep.start();
+        var event = new PlaneEvents.ZoomStep();
+        event.begin();
+        // Trackpads stop between fractional levels, so once they've been quiet for a frame or two head for a whole one.
+        if (System.nanoTime() - lastScrollNanos > FRAME_MILLIS * 2_000_000L) {
+            targetLevel = Math.round(targetLevel);
         }
-        MyUtils.log(core, "World location: " + core.getWorld().getLocation());
-        core.getWorld().invalidate();
-        core.getWorld().setLocation(core.getWorld().getLocation());
+
+        double remaining = targetLevel - zoomLevel;
+        boolean settled = Math.abs(remaining) < SETTLE_DISTANCE && targetLevel == Math.rint(targetLevel);
+        zoomLevel = settled ? targetLevel : zoomLevel + remaining * EASING;
+        updateZoom();
+
+        // Keep whatever's under the mouse where it is.
+        Point pan = new Point(
+                (int) Math.round(zoomAnchor.x - zoomAnchorWorld.x * currentZoom),
+                (int) Math.round(zoomAnchor.y - zoomAnchorWorld.y * currentZoom)
+        );
+        core.getWorld().setLocation(pan);
         core.background.repaint();
-        core.editorWindowManager.updateCurrentWithHovered();
-    }
 
-    private Point2D.Double calculateNewLoc(Point2D.Double locIn, Point zoomLocation, float oldZoom) {
-        Point2D.Double diff = new Point2D.Double();
-        diff.x = locIn.x - zoomLocation.x;
-        diff.y = locIn.y - zoomLocation.y;
-        diff.x *= currentZoom / oldZoom;
-        diff.y *= currentZoom / oldZoom;
-        return new Point2D.Double(diff.x + zoomLocation.x, diff.y + zoomLocation.y);
+        if (settled) {
+            timer.stop();
+            core.positionStore.panChanged(pan);
+            core.positionStore.scaleChanged((int) zoomLevel);
+            core.log.info(() -> "Zoom settled at level " + zoomLevel + ", world location: " + pan);
+            core.editorWindowManager.updateCurrentWithHovered();
+        }
+        core.metrics.zoomStep.stop(start);
+        if (event.shouldCommit()) {
+            event.zoomLevel = zoomLevel;
+            event.targetLevel = targetLevel;
+            event.windowCount = core.editorWindowManager.getWindows().size();
+            event.commit();
+        }
     }
 }
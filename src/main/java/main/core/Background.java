@@ -6,21 +6,18 @@ import com.intellij.psi.PsiTreeChangeAdapter;
 import com.intellij.psi.PsiTreeChangeEvent;
 import com.sun.istack.NotNull;
 import main.components.EditorWindow;
+import main.util.ArrowRouter;
 import main.util.MyUtils;
+import main.util.PlaneEvents;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.HashSet;
 
 public class Background extends JLayeredPane {
-    private final Point topLeftFrom = new Point();
-    private final Point bottomLeftFrom = new Point();
-    private final Point topRightFrom = new Point();
-    private final Point bottomRightFrom = new Point();
-    private final Point topLeftTo = new Point();
-    private final Point bottomLeftTo = new Point();
-    private final Point topRightTo = new Point();
-    private final Point bottomRightTo = new Point();
+    // Reused for every arrow, as there's one per extends clause every frame.
+    private final int[] arrow = new int[4];
     private final Core core;
     Point myTopLeft = new Point();
     // To listen for manually written changes to the PSI tree and redraw extends arrows accordingly.
@@ -44,13 +41,8 @@ public class Background extends JLayeredPane {
             @Override
             public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
                 super.childrenChanged(event);
-                for (var w : core.editorWindowManager.getWindows()) {
-                    if (w.myPsiFile == event.getFile()) {
-                        w.rebuildExtendsList();
-                        repaint();
-                    }
-                }
-
+                // Fires on every keystroke, so the actual work is debounced.
+                core.psiChangeProcessor.fileChanged(event.getFile());
             }
         };
         PsiManager.getInstance(core.getProject()).addPsiTreeChangeListener(psiTreeChangeAdapter);
@@ -63,30 +55,33 @@ public class Background extends JLayeredPane {
         addMouseListener(core.globalListeners.globalMouseListener);
         addMouseWheelListener(core.globalListeners.globalMouseWheelListener);
 
+        // Stills aren't components, so the renderer works out which one any of these actually landed on.
         addMouseMotionListener(new MouseMotionListener() {
             @Override
             public void mouseDragged(MouseEvent e) {
-                core.editorWindowManager.mouseMovedOnBackground();
+                core.planeRenderer.mouseEvent(e);
             }
 
             @Override
             public void mouseMoved(MouseEvent e) {
-                core.editorWindowManager.mouseMovedOnBackground();
+                core.planeRenderer.mouseEvent(e);
             }
         });
 
         addMouseListener(new MouseListener() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                core.editorWindowManager.mouseClickedOnBackground();
+                core.planeRenderer.mouseEvent(e);
             }
 
             @Override
             public void mousePressed(MouseEvent e) {
+                core.planeRenderer.mouseEvent(e);
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
+                core.planeRenderer.mouseEvent(e);
             }
 
             @Override
@@ -95,6 +90,7 @@ public class Background extends JLayeredPane {
 
             @Override
             public void mouseExited(MouseEvent e) {
+                core.planeRenderer.mouseEvent(e);
             }
         });
     }
@@ -108,61 +104,26 @@ public class Background extends JLayeredPane {
     }
 
     public EditorWindow addEditorWindow(PsiJavaFile psiFile) {
+        var event = new PlaneEvents.WindowMaterialized();
+        event.begin();
         EditorWindow window = core.editorWindowManager.createEditor(psiFile);
-        core.getWorld().add(window);
+        core.viewport.windowAdded(window);
+        if (event.shouldCommit()) {
+            event.fileName = psiFile.getName();
+            event.fileSize = psiFile.getVirtualFile().getLength();
+            event.commit();
+        }
         return window;
     }
 
-    private void getPoints(EditorWindow window, boolean from) {
-        Point topLeft = from ? topLeftFrom : topLeftTo;
-        Point bottomLeft = from ? bottomLeftFrom : bottomLeftTo;
-        Point topRight = from ? topRightFrom : topRightTo;
-        Point bottomRight = from ? bottomRightFrom : bottomRightTo;
-
-
-        int topLeftX = window.getX() + core.getWorld().getX();
-        int topLeftY = window.getY() + core.getWorld().getY();
-
-        topLeft.setLocation(topLeftX, topLeftY);
-        bottomLeft.setLocation(topLeftX, topLeftY + window.getHeight());
-        topRight.setLocation(topLeftX + window.getWidth(), topLeftY);
-        bottomRight.setLocation(topLeftX + window.getWidth(), topLeftY + window.getHeight());
-    }
-
     private void drawArrowFrom(Graphics2D g, EditorWindow from, EditorWindow to) {
-        getPoints(from, true);
-        getPoints(to, false);
-
-        var avgY = (Math.min(bottomLeftFrom.y, bottomLeftTo.y) + Math.max(topLeftFrom.y, topLeftTo.y)) / 2;
-        var avgX = (Math.min(topRightFrom.x, topRightTo.x) + Math.max(topLeftFrom.x, topLeftTo.x)) / 2;
-
-        if (topLeftFrom.x > topRightTo.x) {
-            if (topLeftFrom.y > bottomLeftTo.y) {
-                MyUtils.drawArrowLine(g, topLeftFrom.x, topLeftFrom.y, bottomRightTo.x, bottomRightTo.y);
-            } else if (topLeftTo.y > bottomLeftFrom.y) {
-                MyUtils.drawArrowLine(g, bottomLeftFrom.x, bottomLeftFrom.y, topRightTo.x, topRightTo.y);
-            } else {
-                MyUtils.drawArrowLine(g, bottomLeftFrom.x, avgY, topRightTo.x, avgY);
-            }
-        } else if (topLeftTo.x > topRightFrom.x) {
-            if (topLeftFrom.y > bottomLeftTo.y) {
-                MyUtils.drawArrowLine(g, topRightFrom.x, topRightFrom.y, bottomLeftTo.x, bottomLeftTo.y);
-            } else if (topLeftTo.y > bottomLeftFrom.y) {
-                MyUtils.drawArrowLine(g, bottomRightFrom.x, bottomRightFrom.y, topLeftTo.x, topLeftTo.y);
-            } else {
-                MyUtils.drawArrowLine(g, bottomRightFrom.x, avgY, topLeftTo.x, avgY);
-            }
-        } else {
-            if (topLeftFrom.y > bottomLeftTo.y) {
-                MyUtils.drawArrowLine(g, avgX, topLeftFrom.y, avgX, bottomLeftTo.y);
-            } else {
-                MyUtils.drawArrowLine(g, avgX, bottomLeftFrom.y, avgX, topLeftTo.y);
-            }
-        }
+        ArrowRouter.route(core.zoomPanHandler.toScreen(from.getBounds()), core.zoomPanHandler.toScreen(to.getBounds()), arrow);
+        MyUtils.drawArrowLine(g, arrow[0], arrow[1], arrow[2], arrow[3]);
     }
 
     // NOTE TO SELF. YOU CANNOT PRINT IN HERE. INFINITE RECURSIVE LOOP
     public void paintComponent(Graphics g) {
+        long start = core.metrics.backgroundPaint.start();
         var g2 = (Graphics2D) g;
 
         g.setColor(Colors.background());
@@ -173,10 +134,21 @@ public class Background extends JLayeredPane {
 
         myTopLeft = getLocationOnScreen();
 
-        for (var window : core.editorWindowManager.getWindows()) {
-            for (var window2 : window.extendsList) {
-                drawArrowFrom(g2, window, window2);
+        core.clusterManager.paint(g2);
+
+        // Only arrows with an end on screen, so this costs what's visible rather than every window.
+        var visible = new HashSet<>(core.viewport.windowsIn(core.viewport.getVisibleArea()));
+        for (var window : visible) {
+            for (var parent : window.getExtendsList()) {
+                drawArrowFrom(g2, window, parent);
+            }
+            for (var child : window.getExtendsMeList()) {
+                // Otherwise it's drawn from the child's side already.
+                if (!visible.contains(child)) drawArrowFrom(g2, child, window);
             }
         }
+
+        core.planeRenderer.paint(g2);
+        core.metrics.backgroundPaint.stop(start);
     }
 }
@@ -22,6 +22,19 @@ public class Colors {
         return Colors.getColorScheme().getAttributes(DefaultLanguageHighlighterColors.CLASS_NAME).getForegroundColor();
     }
 
+    public static Color summaryMember() {
+        return getColorScheme().getDefaultForeground();
+    }
+
+    public static Color clusterBackground() {
+        return new Color(128, 128, 128, 40);
+    }
+
+    public static Color hudBackground() {
+        Color background = background();
+        return new Color(background.getRed(), background.getGreen(), background.getBlue(), 220);
+    }
+
     public static Color circleGettingDragged() {
         return new Color(83, 83, 83, 255);
     }
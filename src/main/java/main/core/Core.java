@@ -1,37 +1,49 @@
 package main.core;
 
 import com.intellij.openapi.Disposable;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.psi.PsiJavaFile;
 import com.sun.istack.NotNull;
 import main.components.*;
-import main.util.MyUtils;
+import main.util.InheritanceGraph;
+import main.util.Metrics;
+import main.util.PlaneEvents;
+import main.util.PlaneLog;
+import main.util.PositionStore;
 import main.util.SettingsManager;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Core {
     private final World world = new World();
-    public String loadingString = "Waiting for indexing to complete ...";
     public Disposable disposer;
     public ZoomPanHandler zoomPanHandler;
     public GlobalListeners globalListeners;
     public Background background;
     public EditorWindowManager editorWindowManager;
+    public SnapshotStore snapshotStore;
+    public SnapshotScheduler snapshotScheduler;
+    public EditorPool editorPool;
+    public Viewport viewport;
+    public PlaneRenderer planeRenderer;
+    public DetailRenderer detailRenderer;
+    public SummaryRenderer summaryRenderer;
+    public InheritanceGraph<EditorWindow> inheritanceGraph;
+    public PsiChangeProcessor psiChangeProcessor;
     public Overlay overlay;
     public Layout layout;
+    public ClusterManager clusterManager;
+    public PlaneLoader planeLoader;
     public SettingsManager settingsManager;
+    public PositionStore positionStore;
+    public final Metrics metrics = new Metrics();
     public ToolWindow toolWindow;
-    public File log;
+    public final PlaneLog log = new PlaneLog();
     private Project project;
     private boolean isLoaded = false;
     private boolean preLoadComplete = false;
+    private boolean reloadPending = false;
 
 
     public Core(ToolWindow toolWindow) {
@@ -55,15 +67,25 @@ public class Core {
      * @param project The currently open project.
      */
     public void start(Project project) {
-        if (MyUtils.LOGGING_ENABLED) {
-            log = new File(project.getBasePath() + "/ClassPlane_Log.txt");
-            MyUtils.log(this, "LOGGING START");
-        }
-        MyUtils.log(this, "Running start()");
+        log.setLevel(settingsManager.loadLogLevel());
+        log.start(new File(project.getBasePath() + "/ClassPlane_Log.txt"));
+        log.info(() -> "Running start()");
         this.project = project;
+        this.positionStore = new PositionStore(this);
         this.editorWindowManager = new EditorWindowManager(this);
+        this.snapshotStore = new SnapshotStore(this);
+        this.snapshotScheduler = new SnapshotScheduler(this);
+        this.editorPool = new EditorPool(this);
+        this.viewport = new Viewport(this);
+        this.planeRenderer = new PlaneRenderer(this);
+        this.detailRenderer = new DetailRenderer(this);
+        this.summaryRenderer = new SummaryRenderer(this);
+        this.inheritanceGraph = new InheritanceGraph<>();
+        this.psiChangeProcessor = new PsiChangeProcessor(this);
         this.overlay = new Overlay(this);
         this.layout = new Layout(this);
+        this.clusterManager = new ClusterManager(this);
+        this.planeLoader = new PlaneLoader(this);
 
         this.zoomPanHandler = new ZoomPanHandler(this);
         this.globalListeners = new GlobalListeners(this);
@@ -71,7 +93,7 @@ public class Core {
         this.background = new Background(this);
         editorWindowManager.loadingHasFinished();
 
-        MyUtils.log(this, "FINISHED START");
+        log.info(() -> "FINISHED START");
     }
 
     @NotNull
@@ -85,8 +107,20 @@ public class Core {
     }
 
     public void dispose() {
+        // Before anything it'd be adding windows to goes.
+        planeLoader.cancel();
+        zoomPanHandler.dispose();
+        overlay.dispose();
+        layout.dispose();
+        // Before the windows go, as it needs them to know what to save.
+        positionStore.dispose();
         editorWindowManager.dispose();
+        inheritanceGraph.clear();
+        snapshotStore.dispose();
+        snapshotScheduler.dispose();
+        editorPool.dispose();
         background.dispose();
+        log.dispose();
     }
 
     public boolean isLoading() {
@@ -94,48 +128,51 @@ public class Core {
     }
 
     /**
-     * Keep everything responsive while loading by amortising over many frames.
+     * Run by the PlaneLoader once every window has been created.
      */
-    private void rec(List<PsiJavaFile> files, int i) {
-        ApplicationManager.getApplication().invokeLater(() -> {
-            if (i < files.size()) {
-                MyUtils.log(this, "Loaded " + (i + 1) + " out of " + files.size());
-                background.addEditorWindow(files.get(i));
-                loadingString = "Loaded " + (i + 1) + " out of " + files.size();
-                rec(files, i + 1);
-            } else {
-                preLoadComplete = true;
-                loadingHasCompleted();
-            }
-        });
+    public void filesHaveLoaded() {
+        preLoadComplete = true;
+        if (reloadPending) {
+            reloadPending = false;
+            reload();
+            return;
+        }
+        loadingHasCompleted();
     }
 
     public void loadingHasCompleted() {
-        MyUtils.log(this, "Hit loading has completed isLoaded:" + isLoaded + " preloadComplete:" + preLoadComplete + " toolWindowVis:" + toolWindow.isVisible());
+        log.debug(() -> "Hit loading has completed isLoaded:" + isLoaded + " preloadComplete:" + preLoadComplete + " toolWindowVis:" + toolWindow.isVisible());
         if (isLoaded || !preLoadComplete) {
             return;
         }
         if (DumbService.isDumb(project)) {
-            MyUtils.log(this, "The project was dumb when it shouldn't have been. Re-requesting smart mode.");
+            log.warn(() -> "The project was dumb when it shouldn't have been. Re-requesting smart mode.");
             DumbService.getInstance(project).smartInvokeLater(this::loadingHasCompleted);
             return;
         }
         if (!toolWindow.isVisible()) {
             return;
         }
-        MyUtils.log(this, "Got through loadingHasCompleted barriers, starting...");
-        MyUtils.log(this, "There are " + editorWindowManager.getWindows().size() + " windows loaded.");
+        log.info(() -> "Got through loadingHasCompleted barriers, starting...");
+        log.info(() -> "There are " + editorWindowManager.getWindows().size() + " windows loaded.");
         isLoaded = true;
 
+        // The graph links each class to its parents by name, so this is one resolve per extends clause
+        // and the reverse edges come for free.
+        var event = new PlaneEvents.GraphRebuild();
+        event.begin();
         for (var editor : editorWindowManager.getWindows()) {
             editor.rebuildExtendsList();
         }
-        for (var editor : editorWindowManager.getWindows()) {
-            editor.rebuildExtendsMeList();
+        if (event.shouldCommit()) {
+            event.windowCount = editorWindowManager.getWindows().size();
+            event.commit();
         }
+        // Nothing is rasterized here. Windows start off sized from their text, and only get a snapshot
+        // once they're on screen up close, see PlaneRenderer.
         editorWindowManager.allToStills();
         if (editorWindowManager.getWindows().size() > 0) {
-            if (!settingsManager.locationIsSaved(editorWindowManager.getWindows().get(0))) {
+            if (!positionStore.locationIsSaved(editorWindowManager.getWindows().get(0))) {
                 layout.layAllWindowsOut();
             }
         } else {
@@ -146,29 +183,33 @@ public class Core {
     }
 
     /**
-     * Run once indexing has finished.
+     * Throws away every window and loads the plane again, for when what should be on it has changed.
      */
-    public void createFiles() {
-        MyUtils.log(this, "Indexing has finished. Running createFiles()");
-
-        loadingString = "Loading ...";
-        final var files = new ArrayList<PsiJavaFile>();
-
-        for (var psiItem : MyUtils.allPsiItemsIn(this)) {
-            MyUtils.log(this, "Found PSI item " + psiItem.getName());
-            if (!(psiItem instanceof PsiJavaFile)) continue;
-            MyUtils.log(this, "    and it was a valid file");
-            var javaFile = (PsiJavaFile) psiItem;
-            files.add(javaFile);
+    public void reload() {
+        if (planeLoader.isRunning()) {
+            // Started again from filesHaveLoaded once the cancelled load has wound down.
+            log.info(() -> "Cancelling the running load to reload");
+            reloadPending = true;
+            planeLoader.cancel();
+            return;
         }
-
-        MyUtils.log(this, "There are " + files.size() + " files.");
-
-        if (files.size() > 50) {
-            Messages.showDialog("Your project has more than 50 (" + files.size() + ") classes in it, which could have a negative performance impact.",
-                    "Performance Warning", new String[]{"OK"}, 0, Messages.getWarningIcon());
+        if (!preLoadComplete) {
+            // Still waiting for indexing, and the first load picks up the new scope anyway.
+            return;
         }
+        log.info(() -> "Reloading");
+        isLoaded = false;
+        preLoadComplete = false;
+        layout.dispose();
+        editorWindowManager.removeAll();
+        planeLoader.load();
+    }
 
-        rec(files, 0);
+    /**
+     * Run once indexing has finished.
+     */
+    public void createFiles() {
+        log.info(() -> "Indexing has finished. Running createFiles()");
+        planeLoader.load();
     }
 }
\ No newline at end of file
@@ -4,7 +4,6 @@ import com.intellij.ide.IdeEventQueue;
 import com.intellij.openapi.editor.event.EditorMouseEvent;
 import com.intellij.openapi.editor.event.EditorMouseListener;
 import com.intellij.openapi.editor.event.EditorMouseMotionListener;
-import main.util.MyUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.event.*;
@@ -112,7 +111,7 @@ public class GlobalListeners {
     }
 
     private void keyEventFired(KeyEvent e) {
-        MyUtils.log(core, "Key pressed " + e.getKeyChar() + " " + e.getKeyCode());
+        core.log.debug(() -> "Key pressed " + e.getKeyChar() + " " + e.getKeyCode());
         if (e.getID() == KeyEvent.KEY_PRESSED) {
             keysPressed.add(e.getKeyCode());
         } else if (e.getID() == KeyEvent.KEY_RELEASED) {
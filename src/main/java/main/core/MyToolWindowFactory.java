@@ -1,18 +1,22 @@
 package main.core;
 
+import com.intellij.icons.AllIcons;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
-import main.util.MyUtils;
+import main.components.Layout;
+import main.util.PlaneLog;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
+import java.util.List;
 
 public class MyToolWindowFactory implements ToolWindowFactory, DumbAware {
     private Core core;
@@ -35,13 +39,13 @@ public class MyToolWindowFactory implements ToolWindowFactory, DumbAware {
         core.background.addAncestorListener(new AncestorListener() {
             public void ancestorAdded(AncestorEvent event) {
                 core.loadingHasCompleted();
-                MyUtils.log(core, "Mounted core.background");
+                core.log.debug(() -> "Mounted core.background");
                 Tutorial.doStep1(core);
             }
 
             public void ancestorRemoved(AncestorEvent event) {
                 core.loadingHasCompleted();
-                MyUtils.log(core, "Unmounted core.background");
+                core.log.debug(() -> "Unmounted core.background");
                 Tutorial.doStep1(core);
             }
 
@@ -54,6 +58,25 @@ public class MyToolWindowFactory implements ToolWindowFactory, DumbAware {
         toolWindow.getContentManager().addContent(content);
 
         content.setDisposer(core.disposer);
+        toolWindow.setTitleActions(List.of(
+                DumbAwareAction.create("Lay Out as Hierarchy", AllIcons.Hierarchy.Subtypes, e -> core.layout.setMode(Layout.Mode.HIERARCHY)),
+                DumbAwareAction.create("Lay Out by Force", AllIcons.Actions.Lightning, e -> core.layout.setMode(Layout.Mode.FORCE)),
+                DumbAwareAction.create("Toggle Debug Log", AllIcons.Debugger.Console, e -> {
+                    var level = core.log.getLevel() == PlaneLog.Level.OFF ? PlaneLog.Level.DEBUG : PlaneLog.Level.OFF;
+                    core.log.setLevel(level);
+                    core.settingsManager.saveLogLevel(level);
+                }),
+                DumbAwareAction.create("Toggle Performance HUD", AllIcons.Debugger.Overhead, e -> core.overlay.toggleHud()),
+                DumbAwareAction.create("Choose What's Shown", AllIcons.General.Filter, e -> ScopeChooser.show(core, e)),
+                DumbAwareAction.create("Add Superclasses of Selected", AllIcons.Hierarchy.Supertypes, e -> {
+                    var selected = core.editorWindowManager.getSelectedEditor();
+                    if (selected != null) core.planeLoader.addSuperclasses(selected);
+                }),
+                DumbAwareAction.create("Add Packages Around Selected", AllIcons.Nodes.Package, e -> {
+                    var selected = core.editorWindowManager.getSelectedEditor();
+                    if (selected != null) core.planeLoader.addNeighbouringPackages(selected);
+                })
+        ));
         DumbService.getInstance(project).runWhenSmart(core::createFiles);
     }
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package main.core;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiPackage;
+import com.intellij.psi.search.ProjectScope;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import main.components.ClusterManager;
+import main.components.EditorWindow;
+import main.components.PlaneScope;
+import main.util.MyUtils;
+import main.util.PlaneEvents;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Loads the plane in stages, shown as a cancellable background task.
+ * <p>
+ * First every Java class in the project is found in a non-blocking read action off the EDT, and handed to the
+ * {@link main.components.ClusterManager}, which decides which packages start off expanded. Then just the files
+ * in those packages have their documents loaded, and their windows are created on the EDT in batches, each batch
+ * limited to a small time budget so the IDE keeps painting and responding to input in between.
+ * <p>
+ * Only the files in the chosen {@link PlaneScope} are loaded. More can be added later around a window, either
+ * the rest of its superclass chain or the packages next to its own, without reloading anything.
+ */
+public class PlaneLoader {
+    // Roughly half a 60Hz frame.
+    private static final long BATCH_BUDGET_NANOS = 8_000_000;
+
+    private volatile String status = "Waiting for indexing to complete ...";
+    private volatile ProgressIndicator indicator = null;
+    private boolean running = false;
+
+    private final Core core;
+    public PlaneLoader(Core core) {
+        this.core = core;
+    }
+
+    /**
+     * @return A short description of what's being loaded, for the overlay to show while the plane is hidden.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public PlaneScope getScope() {
+        return core.settingsManager.loadScope();
+    }
+
+    /**
+     * Switches the plane over to showing the given scope, and loads it from scratch.
+     */
+    public void setScope(PlaneScope scope) {
+        core.settingsManager.saveScope(scope);
+        core.reload();
+    }
+
+    /**
+     * @return Whether a load has been started and hasn't finished or been cancelled yet. Only on the EDT.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the running load as soon as it next checks, which still ends with {@link Core#filesHaveLoaded()}.
+     */
+    public void cancel() {
+        var current = indicator;
+        if (current != null) current.cancel();
+    }
+
+    public void load() {
+        status = "Loading ... (progress is shown in the status bar)";
+        running = true;
+        var scope = getScope();
+
+        new Task.Backgroundable(core.getProject(), "Loading ClassPlane: " + scope.describe(), true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                PlaneLoader.this.indicator = indicator;
+                indicator.setIndeterminate(true);
+                indicator.setText("Finding classes");
+                List<ClusterManager.ClassInfo> classes = ReadAction
+                        .nonBlocking(() -> discoverClasses(scope))
+                        .inSmartMode(core.getProject())
+                        .expireWith(core.disposer)
+                        .wrapProgress(indicator)
+                        .executeSynchronously();
+
+                core.log.info(() -> "There are " + classes.size() + " files in " + scope.describe());
+
+                List<VirtualFile> toLoad = new ArrayList<>();
+                ApplicationManager.getApplication().invokeAndWait(() -> {
+                    core.clusterManager.setClasses(classes);
+                    toLoad.addAll(core.clusterManager.filesToLoad());
+                }, ModalityState.defaultModalityState());
+
+                indicator.setText("Loading documents");
+                List<LoadedFile> files = ReadAction
+                        .nonBlocking(() -> loadDocuments(toLoad))
+                        .expireWith(core.disposer)
+                        .wrapProgress(indicator)
+                        .executeSynchronously();
+
+                materializeWindows(files, indicator);
+            }
+
+            @Override
+            public void onFinished() {
+                // Also hit when cancelled, in which case the plane just shows what was loaded so far.
+                status = "";
+                indicator = null;
+                running = false;
+                // Cancelled by the plane closing, so there's nothing left to finish loading.
+                if (Disposer.isDisposed(core.disposer)) return;
+                core.filesHaveLoaded();
+            }
+        }.queue();
+    }
+
+    /**
+     * Puts the rest of the window's superclass chain on the plane, as far as it goes within the project.
+     */
+    public void addSuperclasses(EditorWindow window) {
+        addAround(window, () -> {
+            var files = new LinkedHashSet<PsiJavaFile>();
+            var fileIndex = ProjectFileIndex.getInstance(core.getProject());
+            var psiClass = window.getPsiClass();
+            // The set stops it going round forever if the code has a cycle in it.
+            while (psiClass != null && (psiClass = psiClass.getSuperClass()) != null) {
+                var file = psiClass.getContainingFile();
+                if (!(file instanceof PsiJavaFile) || file.getVirtualFile() == null) break;
+                if (!fileIndex.isInSource(file.getVirtualFile())) break;
+                if (!files.add((PsiJavaFile) file)) break;
+            }
+            return files;
+        });
+    }
+
+    /**
+     * Puts the window's own package on the plane, along with the packages either side of it in the tree:
+     * its parent's other subpackages, and its own.
+     */
+    public void addNeighbouringPackages(EditorWindow window) {
+        addAround(window, () -> {
+            var files = new LinkedHashSet<PsiJavaFile>();
+            var scope = ProjectScope.getProjectScope(core.getProject());
+            var psiPackage = JavaPsiFacade.getInstance(core.getProject()).findPackage(window.myPsiFile.getPackageName());
+            if (psiPackage == null) return files;
+
+            var packages = new ArrayList<PsiPackage>();
+            packages.add(psiPackage);
+            var parent = psiPackage.getParentPackage();
+            if (parent != null) packages.addAll(List.of(parent.getSubPackages(scope)));
+            packages.addAll(List.of(psiPackage.getSubPackages(scope)));
+            for (var neighbour : packages) {
+                for (var file : neighbour.getFiles(scope)) {
+                    if (file instanceof PsiJavaFile) files.add((PsiJavaFile) file);
+                }
+            }
+            return files;
+        });
+    }
+
+    /**
+     * Works out what to add in a read action off the EDT, then gives each new class a window in the
+     * nearest free spot to the one it was added around.
+     */
+    private void addAround(EditorWindow window, Supplier<Set<PsiJavaFile>> findFiles) {
+        if (core.isLoading()) return;
+        ReadAction.nonBlocking(findFiles::get)
+                .inSmartMode(core.getProject())
+                .expireWith(core.disposer)
+                .finishOnUiThread(ModalityState.defaultModalityState(), files -> addToPlane(files, window))
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private void addToPlane(Set<PsiJavaFile> files, EditorWindow near) {
+        var spacing = (int) core.layout.getSpacing();
+        var origin = near.getTrueLocation();
+        int added = 0;
+        for (var file : files) {
+            if (!file.isValid() || core.editorWindowManager.windowFor(file.getVirtualFile()) != null) continue;
+            // Its package was collapsed, and expanding it has put it on the plane already.
+            if (core.clusterManager.reveal(file)) {
+                added++;
+                continue;
+            }
+            var window = core.background.addEditorWindow(file);
+            if (!DumbService.isDumb(core.getProject())) window.rebuildExtendsList();
+            var spot = core.viewport.findFreeSpot(window, new Point((int) origin.x, (int) origin.y), spacing);
+            window.setLocation(spot.x, spot.y);
+            added++;
+        }
+        int total = added;
+        core.log.info(() -> "Added " + total + " classes around " + near.getQualifiedName());
+        core.background.repaint();
+    }
+
+    private List<ClusterManager.ClassInfo> discoverClasses(PlaneScope scope) {
+        var event = new PlaneEvents.FileDiscovery();
+        event.begin();
+        var classes = new ArrayList<ClusterManager.ClassInfo>();
+        for (var psiItem : MyUtils.allPsiItemsIn(core, scope.files(core.getProject()))) {
+            ProgressManager.checkCanceled();
+            if (!(psiItem instanceof PsiJavaFile)) continue;
+            // No documents yet, most of these may never need one.
+            classes.add(ClusterManager.ClassInfo.of((PsiJavaFile) psiItem));
+        }
+        if (event.shouldCommit()) {
+            event.scope = scope.describe();
+            event.classCount = classes.size();
+            event.commit();
+        }
+        return classes;
+    }
+
+    private List<LoadedFile> loadDocuments(List<VirtualFile> toLoad) {
+        var files = new ArrayList<LoadedFile>();
+        var psiManager = PsiManager.getInstance(core.getProject());
+        for (var file : toLoad) {
+            ProgressManager.checkCanceled();
+            if (!file.isValid()) continue;
+            var psiFile = psiManager.findFile(file);
+            if (!(psiFile instanceof PsiJavaFile)) continue;
+            var javaFile = (PsiJavaFile) psiFile;
+            var doc = MyUtils.PSIFileToDoc(javaFile, core);
+            if (doc == null) continue;
+            files.add(new LoadedFile(javaFile, doc));
+        }
+        return files;
+    }
+
+    private void materializeWindows(List<LoadedFile> files, ProgressIndicator indicator) {
+        indicator.setIndeterminate(false);
+        indicator.setText("Creating class windows");
+
+        long start = System.nanoTime();
+        int[] next = {0};
+        while (next[0] < files.size()) {
+            indicator.checkCanceled();
+
+            ApplicationManager.getApplication().invokeAndWait(() -> {
+                // Closed since this was queued.
+                if (Disposer.isDisposed(core.disposer)) {
+                    indicator.cancel();
+                    return;
+                }
+                long batchStart = System.nanoTime();
+                while (next[0] < files.size() && System.nanoTime() - batchStart < BATCH_BUDGET_NANOS) {
+                    var file = files.get(next[0]);
+                    if (file.psiFile.isValid()) {
+                        core.background.addEditorWindow(file.psiFile);
+                    }
+                    next[0]++;
+                }
+                core.metrics.loadBatch.stop(batchStart);
+            }, ModalityState.defaultModalityState());
+            indicator.checkCanceled();
+
+            long elapsed = System.nanoTime() - start;
+            long remaining = elapsed / next[0] * (files.size() - next[0]);
+            indicator.setFraction(next[0] / (double) files.size());
+            indicator.setText2("Loaded " + next[0] + " out of " + files.size() +
+                    ", about " + StringUtil.formatDuration(remaining / 1_000_000) + " remaining");
+        }
+    }
+
+    private static class LoadedFile {
+        final PsiJavaFile psiFile;
+        // Held on to so the document isn't collected between discovery and the window being created.
+        final Document doc;
+
+        LoadedFile(PsiJavaFile psiFile, Document doc) {
+            this.psiFile = psiFile;
+            this.doc = doc;
+        }
+    }
+}
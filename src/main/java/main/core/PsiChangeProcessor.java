@@ -0,0 +1,111 @@
+package main.core;
+
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import main.components.ClusterManager;
+import main.components.EditorWindow;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batches up PSI changes so the extends arrows are updated once per burst of changes rather than once per keystroke.
+ * <p>
+ * Changed files are collected until nothing has changed for a short while, then only those files have their
+ * extends clauses re-resolved in a single background read action. The results are applied to the inheritance
+ * graph, and to the ClusterManager for the arrows between collapsed packages, on the EDT, followed by one repaint.
+ */
+public class PsiChangeProcessor {
+    private static final int DEBOUNCE_MILLIS = 300;
+
+    private final Set<PsiFile> dirty = new LinkedHashSet<>();
+    private final Alarm alarm;
+
+    private final Core core;
+    public PsiChangeProcessor(Core core) {
+        this.core = core;
+        alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, core.disposer);
+    }
+
+    public void fileChanged(PsiFile file) {
+        if (!(file instanceof PsiJavaFile)) return;
+        dirty.add(file);
+        alarm.cancelAllRequests();
+        alarm.addRequest(this::flush, DEBOUNCE_MILLIS);
+    }
+
+    private void flush() {
+        var windows = new ArrayList<EditorWindow>();
+        var clustered = new ArrayList<PsiJavaFile>();
+        for (var file : dirty) {
+            var window = core.editorWindowManager.windowFor(file.getVirtualFile());
+            if (window != null) windows.add(window);
+            // Including those in collapsed packages, which can still be edited outside of the plane.
+            if (core.clusterManager.isClustered() && core.clusterManager.isKnown(file.getVirtualFile())) {
+                clustered.add((PsiJavaFile) file);
+            }
+        }
+        dirty.clear();
+        if (windows.isEmpty() && clustered.isEmpty()) return;
+        core.log.debug(() -> "Re-resolving extends for " + windows.size() + " changed windows and " + clustered.size() + " clustered files");
+
+        ReadAction.nonBlocking(() -> resolve(windows, clustered))
+                .inSmartMode(core.getProject())
+                .expireWith(core.disposer)
+                .finishOnUiThread(ModalityState.defaultModalityState(), this::apply)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private Changes resolve(List<EditorWindow> windows, List<PsiJavaFile> clustered) {
+        var changes = new Changes();
+        for (var window : windows) {
+            ProgressManager.checkCanceled();
+            if (!window.myPsiFile.isValid()) continue;
+            changes.windows.put(window, new Resolved(window.getQualifiedName(), window.resolveExtendsNames()));
+        }
+        for (var file : clustered) {
+            ProgressManager.checkCanceled();
+            if (file.isValid()) changes.classes.add(ClusterManager.ClassInfo.of(file));
+        }
+        return changes;
+    }
+
+    private void apply(Changes changes) {
+        for (var entry : changes.windows.entrySet()) {
+            var window = entry.getKey();
+            // It may have been deleted while we were resolving.
+            if (core.editorWindowManager.windowFor(window.myVirtualFile) != window) continue;
+            core.inheritanceGraph.put(window, entry.getValue().name);
+            core.inheritanceGraph.setParents(window, entry.getValue().parentNames);
+            core.summaryRenderer.invalidate(window);
+        }
+        for (var info : changes.classes) {
+            core.clusterManager.classChanged(info);
+        }
+        core.background.repaint();
+    }
+
+    private static class Changes {
+        final Map<EditorWindow, Resolved> windows = new LinkedHashMap<>();
+        final List<ClusterManager.ClassInfo> classes = new ArrayList<>();
+    }
+
+    private static class Resolved {
+        final String name;
+        final List<String> parentNames;
+
+        Resolved(String name, List<String> parentNames) {
+            this.name = name;
+            this.parentNames = parentNames;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package main.core;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import main.components.PlaneScope;
+
+/**
+ * The popup for picking what the plane shows, from the title bar of the tool window.
+ */
+public class ScopeChooser {
+    public static void show(Core core, AnActionEvent e) {
+        var project = core.getProject();
+        var current = core.planeLoader.getScope();
+        var group = new DefaultActionGroup();
+
+        group.add(choice(core, PlaneScope.WHOLE_PROJECT, current));
+        group.add(choice(core, new PlaneScope(PlaneScope.Kind.UNCOMMITTED_CHANGES, ""), current));
+        group.add(DumbAwareAction.create("Package...", event -> {
+            var name = Messages.showInputDialog(project, "Fully qualified package name, subpackages are included:",
+                    "Show Package", null);
+            if (name != null && !name.isBlank()) core.planeLoader.setScope(new PlaneScope(PlaneScope.Kind.PACKAGE, name.trim()));
+        }));
+
+        var modules = ModuleManager.getInstance(project).getModules();
+        if (modules.length > 1) {
+            group.addSeparator("Modules");
+            for (var module : modules) {
+                group.add(choice(core, new PlaneScope(PlaneScope.Kind.MODULE, module.getName()), current));
+            }
+        }
+        var namedScopes = PlaneScope.namedScopes(project);
+        if (!namedScopes.isEmpty()) {
+            group.addSeparator("Scopes");
+            for (var name : namedScopes) {
+                group.add(choice(core, new PlaneScope(PlaneScope.Kind.NAMED_SCOPE, name), current));
+            }
+        }
+
+        JBPopupFactory.getInstance()
+                .createActionGroupPopup("Show on Plane", group, e.getDataContext(), JBPopupFactory.ActionSelectionAid.SPEEDSEARCH, true)
+                .showInBestPositionFor(e.getDataContext());
+    }
+
+    private static DumbAwareAction choice(Core core, PlaneScope scope, PlaneScope current) {
+        var text = scope.describe();
+        if (scope.serialize().equals(current.serialize())) text += " (current)";
+        return DumbAwareAction.create(text, event -> core.planeLoader.setScope(scope));
+    }
+}
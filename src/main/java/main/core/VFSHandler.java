@@ -1,5 +1,6 @@
 package main.core;
 
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.vfs.VirtualFileManager;
@@ -9,15 +10,16 @@ import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
 import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaFile;
+import main.components.EditorWindow;
 import main.util.MyUtils;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
+import java.awt.*;
 import java.util.List;
 
 public class VFSHandler {
     public static void init(Project project, Core core) {
-        project.getMessageBus().connect().subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+        project.getMessageBus().connect(core.disposer).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
             @Override
             public void after(@NotNull List<? extends VFileEvent> events) {
                 for (var event : events) {
@@ -28,11 +30,18 @@ public class VFSHandler {
                     if (file instanceof PsiJavaFile) {
                         PsiJavaFile javaFile = (PsiJavaFile) file;
                         if (event instanceof VFileCreateEvent) {
-                            var windLoc = core.editorWindowManager.averageWindowLocation();
+                            // Its package is collapsed, so it'll get a window when that's expanded.
+                            if (core.clusterManager.fileCreated(javaFile)) continue;
                             var window = core.background.addEditorWindow(javaFile);
                             core.editorWindowManager.changeSelectionTo(window);
-                            window.setLocation(windLoc.x, windLoc.y);
-                            window.toStill();
+                            // Needs a size first, so it knows how big a space it's looking for.
+                            window.sizeToContent();
+                            if (!DumbService.isDumb(core.getProject())) {
+                                window.rebuildExtendsList();
+                            }
+                            var spot = core.viewport.findFreeSpot(window, idealSpotFor(window, core), (int) core.layout.getSpacing());
+                            window.setLocation(spot.x, spot.y);
+                            core.background.repaint();
                         }
                     }
                 }
@@ -42,14 +51,27 @@ public class VFSHandler {
             public void before(@NotNull List<? extends VFileEvent> events) {
                 for (var event : events) {
                     if (event instanceof VFileDeleteEvent) {
-                        for (var w : new ArrayList<>(core.editorWindowManager.getWindows())) {
-                            if (w.myVirtualFile.equals(event.getFile())) {
-                                core.editorWindowManager.delete(w);
-                            }
+                        core.clusterManager.fileDeleted(event.getFile());
+                        var w = core.editorWindowManager.windowFor(event.getFile());
+                        if (w != null) {
+                            core.editorWindowManager.delete(w);
                         }
                     }
                 }
             }
         });
     }
+
+    /**
+     * @return Just under the class's superclass, like the hierarchy layout would put it, or the middle of the
+     * view if it doesn't extend anything on the plane.
+     */
+    private static Point idealSpotFor(EditorWindow window, Core core) {
+        var spacing = (int) core.layout.getSpacing();
+        for (var parent : window.getExtendsList()) {
+            return new Point(parent.getX(), parent.getY() + parent.getHeight() + spacing);
+        }
+        var middle = core.zoomPanHandler.toWorld(new Point(core.background.getWidth() / 2, core.background.getHeight() / 2));
+        return new Point((int) middle.x - window.getWidth() / 2, (int) middle.y - window.getHeight() / 2);
+    }
 }
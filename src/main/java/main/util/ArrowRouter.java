@@ -0,0 +1,61 @@
+package main.util;
+
+import java.awt.*;
+
+/**
+ * Works out where the arrow between two windows goes, without drawing anything.
+ * <p>
+ * If the windows are side by side or one above the other, the arrow runs straight across the gap between
+ * them, halfway along where they overlap. Otherwise it goes corner to corner, between the nearest corners.
+ */
+public class ArrowRouter {
+    /**
+     * @param from Where the arrow starts.
+     * @param to   Where the arrow points.
+     * @param out  Filled with x1, y1, x2, y2, so something drawing lots of arrows can reuse the one array.
+     */
+    public static void route(Rectangle from, Rectangle to, int[] out) {
+        int fromLeft = from.x;
+        int fromTop = from.y;
+        int fromRight = from.x + from.width;
+        int fromBottom = from.y + from.height;
+        int toLeft = to.x;
+        int toTop = to.y;
+        int toRight = to.x + to.width;
+        int toBottom = to.y + to.height;
+
+        int middleY = (Math.min(fromBottom, toBottom) + Math.max(fromTop, toTop)) / 2;
+        int middleX = (Math.min(fromRight, toRight) + Math.max(fromLeft, toLeft)) / 2;
+
+        if (fromLeft > toRight) {
+            if (fromTop > toBottom) {
+                set(out, fromLeft, fromTop, toRight, toBottom);
+            } else if (toTop > fromBottom) {
+                set(out, fromLeft, fromBottom, toRight, toTop);
+            } else {
+                set(out, fromLeft, middleY, toRight, middleY);
+            }
+        } else if (toLeft > fromRight) {
+            if (fromTop > toBottom) {
+                set(out, fromRight, fromTop, toLeft, toBottom);
+            } else if (toTop > fromBottom) {
+                set(out, fromRight, fromBottom, toLeft, toTop);
+            } else {
+                set(out, fromRight, middleY, toLeft, middleY);
+            }
+        } else {
+            if (fromTop > toBottom) {
+                set(out, middleX, fromTop, middleX, toBottom);
+            } else {
+                set(out, middleX, fromBottom, middleX, toTop);
+            }
+        }
+    }
+
+    private static void set(int[] out, int x1, int y1, int x2, int y2) {
+        out[0] = x1;
+        out[1] = y1;
+        out[2] = x2;
+        out[3] = y2;
+    }
+}
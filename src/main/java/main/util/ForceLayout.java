@@ -0,0 +1,255 @@
+package main.util;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A force directed layout, stepped one iteration at a time.
+ * <p>
+ * Every node pushes every other away, edges pull their ends together, and a weak pull towards the middle
+ * stops separate hierarchies drifting off. The pushing is approximated Barnes-Hut style: nodes are put in a
+ * quadtree, and any far enough away group is treated as one heavy node at its centre of mass, making each
+ * step n log n rather than n squared. How far a node may move shrinks every step, so it always settles.
+ * <p>
+ * Pinned nodes push and pull as normal but never move. Like the other layouts, nothing here is random
+ * and nothing touches Swing.
+ */
+public class ForceLayout {
+    // How far away a group must be, relative to its size, before it's treated as one node.
+    private static final double THETA = 0.8;
+    private static final double GRAVITY = 1;
+    private static final double COOLING = 0.97;
+    private static final double MIN_TEMPERATURE = 1;
+    // Past this depth, nodes that are basically on top of each other share a cell.
+    private static final int MAX_DEPTH = 24;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    private final double spacing;
+    private final List<double[]> nodes = new ArrayList<>();
+    private final List<int[]> edges = new ArrayList<>();
+    private final List<Boolean> pinned = new ArrayList<>();
+    private double idealDistance = -1;
+    private double temperature;
+
+    public ForceLayout(double spacing) {
+        this.spacing = spacing;
+    }
+
+    /**
+     * @return The node's id, which is also its index in the result of {@link #getPositions()}.
+     */
+    public int addNode(double x, double y, double width, double height) {
+        nodes.add(new double[]{x + width / 2, y + height / 2, width, height});
+        pinned.add(false);
+        return nodes.size() - 1;
+    }
+
+    public void addEdge(int a, int b) {
+        if (a != b) edges.add(new int[]{a, b});
+    }
+
+    /**
+     * Stops the node from moving, and puts it where it was pinned.
+     */
+    public void pin(int node, double x, double y) {
+        var values = nodes.get(node);
+        values[0] = x + values[2] / 2;
+        values[1] = y + values[3] / 2;
+        pinned.set(node, true);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return Whether nodes are still allowed to move far enough for anyone to notice.
+     */
+    public boolean isSettled() {
+        return idealDistance > 0 && temperature < MIN_TEMPERATURE;
+    }
+
+    /**
+     * Runs one iteration.
+     *
+     * @return The furthest any node moved.
+     */
+    public double step() {
+        int count = nodes.size();
+        if (count == 0) return 0;
+        if (idealDistance < 0) {
+            double totalSize = 0;
+            for (var node : nodes) totalSize += Math.max(node[2], node[3]);
+            idealDistance = spacing + totalSize / count;
+            // Enough that everything can spread out from a single point, which takes further the more there are.
+            temperature = idealDistance * Math.max(1, Math.sqrt(count) / 10);
+        }
+
+        double[] dx = new double[count];
+        double[] dy = new double[count];
+        var tree = buildTree();
+        for (int i = 0; i < count; i++) {
+            repel(i, tree, dx, dy);
+        }
+        for (var edge : edges) {
+            attract(edge[0], edge[1], dx, dy);
+        }
+
+        double midX = 0;
+        double midY = 0;
+        for (var node : nodes) {
+            midX += node[0];
+            midY += node[1];
+        }
+        midX /= count;
+        midY /= count;
+
+        double furthest = 0;
+        for (int i = 0; i < count; i++) {
+            if (pinned.get(i)) continue;
+            var node = nodes.get(i);
+            dx[i] += (midX - node[0]) * GRAVITY;
+            dy[i] += (midY - node[1]) * GRAVITY;
+
+            double length = Math.hypot(dx[i], dy[i]);
+            if (length == 0) continue;
+            double move = Math.min(length, temperature);
+            node[0] += dx[i] / length * move;
+            node[1] += dy[i] / length * move;
+            furthest = Math.max(furthest, move);
+        }
+        temperature *= COOLING;
+        return furthest;
+    }
+
+    /**
+     * @return The top left of every node.
+     */
+    public Point2D.Double[] getPositions() {
+        var result = new Point2D.Double[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            var node = nodes.get(i);
+            result[i] = new Point2D.Double(node[0] - node[2] / 2, node[1] - node[3] / 2);
+        }
+        return result;
+    }
+
+    private void repel(int i, Cell cell, double[] dx, double[] dy) {
+        var node = nodes.get(i);
+        if (cell.bodies != null) {
+            for (int other : cell.bodies) {
+                if (other == i) continue;
+                var otherNode = nodes.get(other);
+                // Measured between the edges rather than the centres, so big windows keep each other further away.
+                double reach = (node[2] + node[3] + otherNode[2] + otherNode[3]) / 4;
+                push(i, node[0] - otherNode[0], node[1] - otherNode[1], reach, 1, i - other, dx, dy);
+            }
+            return;
+        }
+
+        double distance = Math.hypot(node[0] - cell.massX, node[1] - cell.massY);
+        if (cell.size < distance * THETA) {
+            push(i, node[0] - cell.massX, node[1] - cell.massY, 0, cell.mass, i, dx, dy);
+            return;
+        }
+        for (var child : cell.children) {
+            if (child != null) repel(i, child, dx, dy);
+        }
+    }
+
+    private void push(int i, double offsetX, double offsetY, double reach, double mass, int seed, double[] dx, double[] dy) {
+        double distance = Math.hypot(offsetX, offsetY);
+        if (distance == 0) {
+            // Exactly on top of each other, so pick a direction that's different for every pair but the same every run.
+            offsetX = Math.cos(seed * GOLDEN_ANGLE);
+            offsetY = Math.sin(seed * GOLDEN_ANGLE);
+            distance = 1;
+        }
+        double gap = Math.max(1, distance - reach);
+        double force = mass * idealDistance * idealDistance / gap;
+        dx[i] += offsetX / distance * force;
+        dy[i] += offsetY / distance * force;
+    }
+
+    private void attract(int a, int b, double[] dx, double[] dy) {
+        var nodeA = nodes.get(a);
+        var nodeB = nodes.get(b);
+        double offsetX = nodeB[0] - nodeA[0];
+        double offsetY = nodeB[1] - nodeA[1];
+        double distance = Math.hypot(offsetX, offsetY);
+        if (distance == 0) return;
+        double force = distance * distance / idealDistance;
+        dx[a] += offsetX / distance * force;
+        dy[a] += offsetY / distance * force;
+        dx[b] -= offsetX / distance * force;
+        dy[b] -= offsetY / distance * force;
+    }
+
+    private Cell buildTree() {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (var node : nodes) {
+            minX = Math.min(minX, node[0]);
+            minY = Math.min(minY, node[1]);
+            maxX = Math.max(maxX, node[0]);
+            maxY = Math.max(maxY, node[1]);
+        }
+        var root = new Cell(minX, minY, Math.max(1, Math.max(maxX - minX, maxY - minY)));
+        for (int i = 0; i < nodes.size(); i++) {
+            root.insert(i, nodes.get(i), nodes, 0);
+        }
+        return root;
+    }
+
+    /**
+     * A square in the quadtree. Either a leaf holding bodies, or split into four.
+     */
+    private static class Cell {
+        final double x;
+        final double y;
+        final double size;
+        double mass = 0;
+        double massX = 0;
+        double massY = 0;
+        List<Integer> bodies = new ArrayList<>();
+        Cell[] children = null;
+
+        Cell(double x, double y, double size) {
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        void insert(int body, double[] node, List<double[]> nodes, int depth) {
+            massX = (massX * mass + node[0]) / (mass + 1);
+            massY = (massY * mass + node[1]) / (mass + 1);
+            mass++;
+
+            if (children == null) {
+                if (bodies.isEmpty() || depth >= MAX_DEPTH) {
+                    bodies.add(body);
+                    return;
+                }
+                // Already holding one, so split and push it down a level.
+                children = new Cell[4];
+                for (int existing : bodies) {
+                    childFor(nodes.get(existing)).insert(existing, nodes.get(existing), nodes, depth + 1);
+                }
+                bodies = null;
+            }
+            childFor(node).insert(body, node, nodes, depth + 1);
+        }
+
+        private Cell childFor(double[] node) {
+            double half = size / 2;
+            int index = (node[0] >= x + half ? 1 : 0) + (node[1] >= y + half ? 2 : 0);
+            if (children[index] == null) {
+                children[index] = new Cell(x + (index % 2) * half, y + (index / 2) * half, half);
+            }
+            return children[index];
+        }
+    }
+}
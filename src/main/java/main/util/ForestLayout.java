@@ -0,0 +1,133 @@
+package main.util;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Lays out a hierarchy made of many separate trees, like a project's classes.
+ * <p>
+ * Each connected hierarchy is handed to its own {@link LayeredLayout}, and those are all worked out in
+ * parallel on the common fork/join pool. Their bounding boxes are then packed together by a
+ * {@link SkylinePacker}, so lots of small hierarchies don't end up in one long row.
+ * Like LayeredLayout, the result only depends on what was added and in what order.
+ */
+public class ForestLayout {
+    private final double spacing;
+    private final double aspect;
+    private final List<double[]> sizes = new ArrayList<>();
+    private final List<int[]> edges = new ArrayList<>();
+
+    /**
+     * @param aspect The width over the height wanted for the whole layout.
+     */
+    public ForestLayout(double spacing, double aspect) {
+        this.spacing = spacing;
+        this.aspect = aspect;
+    }
+
+    /**
+     * @return The node's id, which is also its index in the result of {@link #compute()}.
+     */
+    public int addNode(double width, double height) {
+        sizes.add(new double[]{width, height});
+        return sizes.size() - 1;
+    }
+
+    public void addEdge(int child, int parent) {
+        edges.add(new int[]{child, parent});
+    }
+
+    public int size() {
+        return sizes.size();
+    }
+
+    /**
+     * @return The top left of every node, with the layout's own top left at 0, 0.
+     */
+    public Point2D.Double[] compute() {
+        var trees = splitIntoTrees();
+
+        // Each tree's layout is independent of the others, so they can all be done at once.
+        var layouts = trees.parallelStream()
+                .map(Tree::compute)
+                .collect(Collectors.toList());
+
+        double[] widths = new double[trees.size()];
+        double[] heights = new double[trees.size()];
+        for (int i = 0; i < trees.size(); i++) {
+            var tree = trees.get(i);
+            var positions = layouts.get(i);
+            for (int j = 0; j < positions.length; j++) {
+                var size = sizes.get(tree.nodes.get(j));
+                widths[i] = Math.max(widths[i], positions[j].x + size[0]);
+                heights[i] = Math.max(heights[i], positions[j].y + size[1]);
+            }
+        }
+        var offsets = new SkylinePacker(spacing).pack(widths, heights, aspect);
+
+        var result = new Point2D.Double[sizes.size()];
+        for (int i = 0; i < trees.size(); i++) {
+            var tree = trees.get(i);
+            var positions = layouts.get(i);
+            for (int j = 0; j < positions.length; j++) {
+                result[tree.nodes.get(j)] = new Point2D.Double(offsets[i].x + positions[j].x, offsets[i].y + positions[j].y);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Groups nodes that are connected in either direction, with a union find.
+     */
+    private List<Tree> splitIntoTrees() {
+        int[] roots = new int[sizes.size()];
+        for (int i = 0; i < roots.length; i++) roots[i] = i;
+        for (var edge : edges) {
+            int a = find(roots, edge[0]);
+            int b = find(roots, edge[1]);
+            // The lower id wins, so trees come out in the order their first node was added.
+            if (a != b) roots[Math.max(a, b)] = Math.min(a, b);
+        }
+
+        Map<Integer, Tree> trees = new LinkedHashMap<>();
+        int[] localIds = new int[sizes.size()];
+        for (int node = 0; node < sizes.size(); node++) {
+            var tree = trees.computeIfAbsent(find(roots, node), k -> new Tree(spacing));
+            localIds[node] = tree.add(node, sizes.get(node));
+        }
+        for (var edge : edges) {
+            trees.get(find(roots, edge[0])).layout.addEdge(localIds[edge[0]], localIds[edge[1]]);
+        }
+        return new ArrayList<>(trees.values());
+    }
+
+    private static int find(int[] roots, int node) {
+        while (roots[node] != node) {
+            roots[node] = roots[roots[node]];
+            node = roots[node];
+        }
+        return node;
+    }
+
+    private static class Tree {
+        final List<Integer> nodes = new ArrayList<>();
+        final LayeredLayout layout;
+
+        Tree(double spacing) {
+            layout = new LayeredLayout(spacing);
+        }
+
+        int add(int node, double[] size) {
+            nodes.add(node);
+            return layout.addNode(size[0], size[1]);
+        }
+
+        Point2D.Double[] compute() {
+            return layout.compute();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package main.util;
+
+import java.util.*;
+
+/**
+ * Which classes extend which, keyed by qualified class name.
+ * <p>
+ * Both directions are kept up to date incrementally. Changing what one class extends only touches that
+ * class's own edges, and adding or removing a class only touches the edges of classes that name it.
+ * Parents that aren't in the graph yet are remembered, so the edge appears as soon as they're added.
+ * If more than one node claims the same name, the first keeps it, and the next takes over once it's gone.
+ *
+ * @param <T> The type of node, one per class.
+ */
+public class InheritanceGraph<T> {
+    private final Map<String, T> byName = new HashMap<>();
+    private final Map<T, String> names = new HashMap<>();
+    // Every node claiming each name, in the order they claimed it. The first is the one in byName.
+    private final Map<String, List<T>> claimants = new HashMap<>();
+    // The parent names each node asked for, whether or not they're in the graph.
+    private final Map<T, Set<String>> wantedParents = new HashMap<>();
+    // The reverse of wantedParents.
+    private final Map<String, Set<T>> referrers = new HashMap<>();
+    private final Map<T, List<T>> parents = new HashMap<>();
+    private final Map<T, List<T>> children = new HashMap<>();
+
+    /**
+     * Adds the node, or renames it if it's already in the graph.
+     *
+     * @param name The node's qualified name, or null if it doesn't have one.
+     */
+    public void put(T node, String name) {
+        String oldName = names.get(node);
+        if (names.containsKey(node) && Objects.equals(oldName, name)) return;
+
+        if (oldName != null) {
+            unname(node, oldName);
+        }
+        names.put(node, name);
+        if (name == null) return;
+
+        // Two classes claiming the same name (mid-rename, or the same class in two modules), first one in keeps it.
+        claimants.computeIfAbsent(name, k -> new ArrayList<>()).add(node);
+        if (byName.containsKey(name)) return;
+        claim(node, name);
+    }
+
+    public void remove(T node) {
+        if (!names.containsKey(node)) return;
+        setParents(node, Collections.emptyList());
+        String name = names.remove(node);
+        if (name != null) {
+            unname(node, name);
+        }
+        wantedParents.remove(node);
+        parents.remove(node);
+        children.remove(node);
+    }
+
+    /**
+     * Replaces everything the node extends.
+     */
+    public void setParents(T node, Collection<String> parentNames) {
+        var newNames = new HashSet<>(parentNames);
+        var oldNames = wantedParents.getOrDefault(node, Collections.emptySet());
+
+        for (String name : oldNames) {
+            if (newNames.contains(name)) continue;
+            var waiting = referrers.get(name);
+            if (waiting != null) {
+                waiting.remove(node);
+                if (waiting.isEmpty()) referrers.remove(name);
+            }
+            T parent = byName.get(name);
+            if (parent != null) unlink(node, parent);
+        }
+        for (String name : newNames) {
+            if (oldNames.contains(name)) continue;
+            referrers.computeIfAbsent(name, k -> new HashSet<>()).add(node);
+            T parent = byName.get(name);
+            if (parent != null) link(node, parent);
+        }
+
+        if (newNames.isEmpty()) {
+            wantedParents.remove(node);
+        } else {
+            wantedParents.put(node, newNames);
+        }
+    }
+
+    /**
+     * @return Everything the node extends that's in the graph.
+     */
+    public List<T> getParents(T node) {
+        return Collections.unmodifiableList(parents.getOrDefault(node, Collections.emptyList()));
+    }
+
+    /**
+     * @return Everything in the graph that extends the node.
+     */
+    public List<T> getChildren(T node) {
+        return Collections.unmodifiableList(children.getOrDefault(node, Collections.emptyList()));
+    }
+
+    public T get(String name) {
+        return byName.get(name);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public void clear() {
+        byName.clear();
+        names.clear();
+        claimants.clear();
+        wantedParents.clear();
+        referrers.clear();
+        parents.clear();
+        children.clear();
+    }
+
+    private void claim(T node, String name) {
+        byName.put(name, node);
+        for (T referrer : referrers.getOrDefault(name, Collections.emptySet())) {
+            link(referrer, node);
+        }
+    }
+
+    private void unname(T node, String name) {
+        var waiting = claimants.get(name);
+        if (waiting != null) {
+            waiting.remove(node);
+            if (waiting.isEmpty()) claimants.remove(name);
+        }
+        if (byName.get(name) != node) return;
+        byName.remove(name);
+        for (T referrer : referrers.getOrDefault(name, Collections.emptySet())) {
+            unlink(referrer, node);
+        }
+        // Anything else with the same name takes over, so the arrows to it come back.
+        if (waiting != null && !waiting.isEmpty()) claim(waiting.get(0), name);
+    }
+
+    private void link(T child, T parent) {
+        if (child == parent) return;
+        var parentList = parents.computeIfAbsent(child, k -> new ArrayList<>());
+        if (parentList.contains(parent)) return;
+        parentList.add(parent);
+        children.computeIfAbsent(parent, k -> new ArrayList<>()).add(child);
+    }
+
+    private void unlink(T child, T parent) {
+        var parentList = parents.get(child);
+        if (parentList != null) parentList.remove(parent);
+        var childList = children.get(parent);
+        if (childList != null) childList.remove(child);
+    }
+}
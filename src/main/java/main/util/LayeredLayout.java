@@ -0,0 +1,382 @@
+package main.util;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lays a hierarchy out in rows, Sugiyama style, with parents above their children.
+ * <p>
+ * Nodes go in the row one below their lowest parent, edges that skip rows get invisible dummy nodes,
+ * the order within each row is swept with barycenters to cut down on crossings, and then each row is
+ * compacted so every node sits as close as it can to the middle of whatever it's connected to without
+ * overlapping its neighbours.
+ * <p>
+ * Nothing here is random and nothing touches Swing. The result only depends on what was added and in
+ * what order, so the same hierarchy always gets the same layout, and it's safe to compute off the EDT.
+ */
+public class LayeredLayout {
+    private static final int ORDERING_SWEEPS = 8;
+    private static final int COMPACTION_PASSES = 4;
+
+    private final double spacing;
+    private final List<double[]> sizes = new ArrayList<>();
+    private final List<List<Integer>> parents = new ArrayList<>();
+
+    public LayeredLayout(double spacing) {
+        this.spacing = spacing;
+    }
+
+    /**
+     * @return The node's id, which is also its index in the result of {@link #compute()}.
+     */
+    public int addNode(double width, double height) {
+        sizes.add(new double[]{width, height});
+        parents.add(new ArrayList<>());
+        return sizes.size() - 1;
+    }
+
+    public void addEdge(int child, int parent) {
+        if (child == parent || parents.get(child).contains(parent)) return;
+        parents.get(child).add(parent);
+    }
+
+    public int size() {
+        return sizes.size();
+    }
+
+    /**
+     * @return The top left of every node, with the layout's own top left at 0, 0.
+     */
+    public Point2D.Double[] compute() {
+        int realCount = sizes.size();
+        if (realCount == 0) return new Point2D.Double[0];
+
+        int[] nodeLayers = assignLayers();
+        var graph = new Graph(realCount);
+        for (int i = 0; i < realCount; i++) {
+            graph.add(nodeLayers[i], sizes.get(i)[0], sizes.get(i)[1]);
+        }
+        for (int child = 0; child < realCount; child++) {
+            for (int parent : parents.get(child)) {
+                // Only edges that go downwards, anything else was part of a cycle.
+                if (nodeLayers[parent] >= nodeLayers[child]) continue;
+                int above = parent;
+                for (int layer = nodeLayers[parent] + 1; layer < nodeLayers[child]; layer++) {
+                    int dummy = graph.add(layer, 0, 0);
+                    graph.link(above, dummy);
+                    above = dummy;
+                }
+                graph.link(above, child);
+            }
+        }
+
+        var rows = initialOrder(graph);
+        orderRows(graph, rows);
+        double[] x = placeRows(graph, rows);
+
+        double[] rowTops = new double[rows.size()];
+        double top = 0;
+        for (int layer = 0; layer < rows.size(); layer++) {
+            rowTops[layer] = top;
+            double rowHeight = 0;
+            for (int node : rows.get(layer)) rowHeight = Math.max(rowHeight, graph.heights.get(node));
+            top += rowHeight + spacing;
+        }
+
+        double minX = Double.MAX_VALUE;
+        for (int i = 0; i < realCount; i++) minX = Math.min(minX, x[i]);
+        var result = new Point2D.Double[realCount];
+        for (int i = 0; i < realCount; i++) {
+            result[i] = new Point2D.Double(x[i] - minX, rowTops[graph.layers.get(i)]);
+        }
+        return result;
+    }
+
+    /**
+     * Each node goes one row below its lowest parent. Edges that would make a cycle are ignored.
+     * <p>
+     * A depth first walk up through the parents, with its own stack as a long chain would overflow the thread's.
+     */
+    private int[] assignLayers() {
+        int count = sizes.size();
+        int[] layers = new int[count];
+        // 0 is unvisited, 1 is on the stack, 2 is done.
+        int[] state = new int[count];
+        // How many of its parents each node on the stack has been through.
+        int[] nextParent = new int[count];
+        int[] stack = new int[count];
+        for (int start = 0; start < count; start++) {
+            if (state[start] != 0) continue;
+            int depth = 0;
+            stack[depth++] = start;
+            state[start] = 1;
+            while (depth > 0) {
+                int node = stack[depth - 1];
+                var nodeParents = parents.get(node);
+                if (nextParent[node] < nodeParents.size()) {
+                    int parent = nodeParents.get(nextParent[node]++);
+                    if (state[parent] == 0) {
+                        state[parent] = 1;
+                        stack[depth++] = parent;
+                    }
+                    continue;
+                }
+
+                int layer = 0;
+                for (int parent : nodeParents) {
+                    // Still on the stack means it's also below this node, so the edge is part of a cycle.
+                    if (state[parent] == 2) layer = Math.max(layer, layers[parent] + 1);
+                }
+                layers[node] = layer;
+                state[node] = 2;
+                depth--;
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * Orders each row by a depth first walk from the roots, so subtrees start off next to each other.
+     */
+    private List<List<Integer>> initialOrder(Graph graph) {
+        var rows = new ArrayList<List<Integer>>();
+        boolean[] visited = new boolean[graph.size()];
+        for (int node = 0; node < graph.size(); node++) {
+            if (graph.up.get(node).isEmpty()) visit(graph, node, visited, rows);
+        }
+        // Nodes whose every parent was cut from a cycle.
+        for (int node = 0; node < graph.size(); node++) {
+            visit(graph, node, visited, rows);
+        }
+        return rows;
+    }
+
+    private void visit(Graph graph, int start, boolean[] visited, List<List<Integer>> rows) {
+        var stack = new ArrayList<Integer>();
+        stack.add(start);
+        while (!stack.isEmpty()) {
+            int node = stack.remove(stack.size() - 1);
+            if (visited[node]) continue;
+            visited[node] = true;
+            int layer = graph.layers.get(node);
+            while (rows.size() <= layer) rows.add(new ArrayList<>());
+            rows.get(layer).add(node);
+            var down = graph.down.get(node);
+            // Backwards, so the first child is the first one popped.
+            for (int i = down.size() - 1; i >= 0; i--) stack.add(down.get(i));
+        }
+    }
+
+    /**
+     * Sweeps down and then up the rows, sorting each by the average position of its neighbours in the row
+     * it was just compared against, and keeps whichever ordering had the fewest crossings.
+     */
+    private void orderRows(Graph graph, List<List<Integer>> rows) {
+        int[] position = new int[graph.size()];
+        double[] barycenters = new double[graph.size()];
+        updatePositions(rows, position);
+        long bestCrossings = countCrossings(graph, rows, position);
+        var best = copy(rows);
+
+        for (int sweep = 0; sweep < ORDERING_SWEEPS && bestCrossings > 0; sweep++) {
+            if (sweep % 2 == 0) {
+                for (int layer = 1; layer < rows.size(); layer++) {
+                    sortByBarycenter(rows.get(layer), graph.up, position, barycenters);
+                }
+            } else {
+                for (int layer = rows.size() - 2; layer >= 0; layer--) {
+                    sortByBarycenter(rows.get(layer), graph.down, position, barycenters);
+                }
+            }
+            long crossings = countCrossings(graph, rows, position);
+            if (crossings < bestCrossings) {
+                bestCrossings = crossings;
+                best = copy(rows);
+            }
+        }
+
+        for (int layer = 0; layer < rows.size(); layer++) {
+            rows.set(layer, best.get(layer));
+        }
+    }
+
+    private void sortByBarycenter(List<Integer> row, List<List<Integer>> neighbours, int[] position, double[] barycenters) {
+        for (int node : row) {
+            var adjacent = neighbours.get(node);
+            if (adjacent.isEmpty()) {
+                // Nothing to pull it anywhere, so it stays where it is.
+                barycenters[node] = position[node];
+                continue;
+            }
+            double sum = 0;
+            for (int other : adjacent) sum += position[other];
+            barycenters[node] = sum / adjacent.size();
+        }
+        // Stable, so ties keep their current order.
+        row.sort(Comparator.comparingDouble(node -> barycenters[node]));
+        for (int i = 0; i < row.size(); i++) position[row.get(i)] = i;
+    }
+
+    private long countCrossings(Graph graph, List<List<Integer>> rows, int[] position) {
+        updatePositions(rows, position);
+        long crossings = 0;
+        for (int layer = 0; layer + 1 < rows.size(); layer++) {
+            // Edges in order along the upper row, then any whose lower ends go backwards cross.
+            var ends = new ArrayList<Integer>();
+            for (int node : rows.get(layer)) {
+                var below = new ArrayList<>(graph.down.get(node));
+                below.sort(Comparator.comparingInt(other -> position[other]));
+                for (int other : below) ends.add(position[other]);
+            }
+            crossings += countInversions(ends, rows.get(layer + 1).size());
+        }
+        return crossings;
+    }
+
+    /**
+     * Counts pairs that are out of order with a Fenwick tree, so it's n log n rather than n squared.
+     */
+    private static long countInversions(List<Integer> values, int range) {
+        long[] tree = new long[range + 1];
+        long inversions = 0;
+        long seen = 0;
+        for (int value : values) {
+            long notAbove = 0;
+            for (int i = value + 1; i > 0; i -= i & -i) notAbove += tree[i];
+            inversions += seen - notAbove;
+            for (int i = value + 1; i <= range; i += i & -i) tree[i]++;
+            seen++;
+        }
+        return inversions;
+    }
+
+    /**
+     * Repeatedly pulls each row towards the middles of its parents, then of its children.
+     *
+     * @return The left edge of every node, dummies included.
+     */
+    private double[] placeRows(Graph graph, List<List<Integer>> rows) {
+        double[] x = new double[graph.size()];
+        for (var row : rows) {
+            double left = 0;
+            for (int node : row) {
+                x[node] = left;
+                left += graph.widths.get(node) + spacing;
+            }
+        }
+
+        for (int pass = 0; pass < COMPACTION_PASSES; pass++) {
+            for (int layer = 1; layer < rows.size(); layer++) {
+                compact(rows.get(layer), graph, graph.up, x);
+            }
+            for (int layer = rows.size() - 2; layer >= 0; layer--) {
+                compact(rows.get(layer), graph, graph.down, x);
+            }
+        }
+        // Finish going downwards, so parents stay centred over their children where there's room.
+        for (int layer = 1; layer < rows.size(); layer++) {
+            compact(rows.get(layer), graph, graph.up, x);
+        }
+        return x;
+    }
+
+    /**
+     * Moves each node in the row as close as possible to the middle of its neighbours, keeping the row's order
+     * and spacing. That's an isotonic regression once each node's minimum offset from the row's start is taken
+     * out, which pool adjacent violators solves exactly in one pass.
+     */
+    private void compact(List<Integer> row, Graph graph, List<List<Integer>> neighbours, double[] x) {
+        int size = row.size();
+        double[] offsets = new double[size];
+        double[] targets = new double[size];
+        double offset = 0;
+        for (int i = 0; i < size; i++) {
+            int node = row.get(i);
+            offsets[i] = offset;
+            offset += graph.widths.get(node) + spacing;
+
+            double desired = x[node];
+            var adjacent = neighbours.get(node);
+            if (!adjacent.isEmpty()) {
+                double sum = 0;
+                for (int other : adjacent) sum += x[other] + graph.widths.get(other) / 2;
+                desired = sum / adjacent.size() - graph.widths.get(node) / 2;
+            }
+            targets[i] = desired - offsets[i];
+        }
+
+        // Each block is a run of nodes pushed up against each other, sharing one position.
+        double[] blockSums = new double[size];
+        int[] blockCounts = new int[size];
+        int blocks = 0;
+        for (int i = 0; i < size; i++) {
+            blockSums[blocks] = targets[i];
+            blockCounts[blocks] = 1;
+            blocks++;
+            while (blocks > 1 && blockSums[blocks - 2] / blockCounts[blocks - 2] > blockSums[blocks - 1] / blockCounts[blocks - 1]) {
+                blockSums[blocks - 2] += blockSums[blocks - 1];
+                blockCounts[blocks - 2] += blockCounts[blocks - 1];
+                blocks--;
+            }
+        }
+
+        int i = 0;
+        for (int block = 0; block < blocks; block++) {
+            double value = blockSums[block] / blockCounts[block];
+            for (int j = 0; j < blockCounts[block]; j++, i++) {
+                x[row.get(i)] = value + offsets[i];
+            }
+        }
+    }
+
+    private static void updatePositions(List<List<Integer>> rows, int[] position) {
+        for (var row : rows) {
+            for (int i = 0; i < row.size(); i++) position[row.get(i)] = i;
+        }
+    }
+
+    private static List<List<Integer>> copy(List<List<Integer>> rows) {
+        var copy = new ArrayList<List<Integer>>();
+        for (var row : rows) copy.add(new ArrayList<>(row));
+        return copy;
+    }
+
+    /**
+     * The hierarchy with dummy nodes added, real nodes keep their ids.
+     */
+    private static class Graph {
+        final List<Integer> layers;
+        final List<Double> widths;
+        final List<Double> heights;
+        final List<List<Integer>> up;
+        final List<List<Integer>> down;
+
+        Graph(int expected) {
+            layers = new ArrayList<>(expected);
+            widths = new ArrayList<>(expected);
+            heights = new ArrayList<>(expected);
+            up = new ArrayList<>(expected);
+            down = new ArrayList<>(expected);
+        }
+
+        int add(int layer, double width, double height) {
+            layers.add(layer);
+            widths.add(width);
+            heights.add(height);
+            up.add(new ArrayList<>());
+            down.add(new ArrayList<>());
+            return layers.size() - 1;
+        }
+
+        void link(int parent, int child) {
+            down.get(parent).add(child);
+            up.get(child).add(parent);
+        }
+
+        int size() {
+            return layers.size();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package main.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings for the hot paths, cheap enough to leave on all the time.
+ * <p>
+ * Each timer is a histogram with buckets that double in width every 8, so recording is an array increment and
+ * percentiles are accurate to within about 12%. Timers can be recorded into from any thread, and are read by the
+ * performance HUD in the {@link main.components.Overlay}.
+ */
+public class Metrics {
+    public final Timer backgroundPaint = new Timer("Frame (Background.paint)");
+    public final Timer windowPaint = new Timer("Window paint");
+    public final Timer rebuildImage = new Timer("Rasterize snapshot");
+    public final Timer toEditor = new Timer("To editor");
+    public final Timer toStill = new Timer("To still");
+    public final Timer zoom = new Timer("Zoom input");
+    public final Timer zoomStep = new Timer("Zoom step");
+    public final Timer layout = new Timer("Layout (EDT)");
+    public final Timer layoutCompute = new Timer("Layout compute");
+    public final Timer loadBatch = new Timer("Loading batch");
+
+    private final List<Timer> timers = List.of(
+            backgroundPaint, windowPaint, rebuildImage, toEditor, toStill, zoom, zoomStep, layout, layoutCompute, loadBatch
+    );
+
+    public List<Timer> getTimers() {
+        return timers;
+    }
+
+    public void reset() {
+        for (var timer : timers) timer.reset();
+    }
+
+    /**
+     * @return Each timer as one line of text, for logging or bug reports.
+     */
+    public List<String> describe() {
+        var lines = new ArrayList<String>();
+        for (var timer : timers) {
+            lines.add(String.format("%s: n=%d p50=%.2fms p95=%.2fms max=%.2fms", timer.getName(), timer.getCount(),
+                    timer.percentileNanos(0.5) / 1e6, timer.percentileNanos(0.95) / 1e6, timer.getMaxNanos() / 1e6));
+        }
+        return lines;
+    }
+
+    public static class Timer {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Something to hand back to {@link #stop(long)}.
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        public void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) return;
+            counts.incrementAndGet(bucketOf(nanos));
+            count.incrementAndGet();
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        /**
+         * @param fraction Between 0 and 1, so 0.95 for the 95th percentile.
+         * @return Roughly the time that fraction of recordings took at most, or 0 if nothing's been recorded.
+         */
+        public long percentileNanos(double fraction) {
+            long total = count.get();
+            if (total == 0) return 0;
+            long wanted = Math.max(1, (long) Math.ceil(total * fraction));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= wanted) return Math.min(middleOf(bucket), max.get());
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) counts.set(bucket, 0);
+            count.set(0);
+            max.set(0);
+        }
+
+        static int bucketOf(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) nanos;
+            int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (highestBit - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (highestBit - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        static long middleOf(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int highestBit = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long width = 1L << (highestBit - SUB_BITS);
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (highestBit - SUB_BITS);
+            return lower + width / 2;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package main.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+/**
+ * A snapshot along with successively halved copies of it, one for each zoom level.
+ * <p>
+ * Level 0 is the snapshot itself, level n is half the size of level n - 1.
+ * Levels are only built the first time they're asked for, so a window that's never
+ * seen at a given zoom never pays for it.
+ */
+public class MipmapChain {
+    // Matches the zoom levels ZoomPanHandler allows.
+    public static final int LEVELS = 8;
+
+    private final BufferedImage[] levels = new BufferedImage[LEVELS];
+
+    public MipmapChain(BufferedImage base) {
+        levels[0] = base;
+    }
+
+    public BufferedImage getBase() {
+        return levels[0];
+    }
+
+    public BufferedImage getLevel(int level) {
+        if (level < 0) level = 0;
+        if (level >= LEVELS) level = LEVELS - 1;
+
+        if (levels[level] == null) {
+            levels[level] = halve(getLevel(level - 1));
+        }
+        return levels[level];
+    }
+
+    public Optional<BufferedImage> getLevelIfBuilt(int level) {
+        return Optional.ofNullable(levels[level]);
+    }
+
+    /**
+     * For drawing mid-animation, where building a new level would cost a frame.
+     *
+     * @return The built level closest to the one asked for, preferring sharper ones. Only builds the
+     * level asked for if nothing at all is built.
+     */
+    public BufferedImage getNearestBuilt(int level) {
+        if (level < 0) level = 0;
+        if (level >= LEVELS) level = LEVELS - 1;
+
+        for (int distance = 0; distance < LEVELS; distance++) {
+            if (level - distance >= 0 && levels[level - distance] != null) return levels[level - distance];
+            if (level + distance < LEVELS && levels[level + distance] != null) return levels[level + distance];
+        }
+        return getLevel(level);
+    }
+
+    /**
+     * Frees every level, including the base snapshot.
+     */
+    public void flush() {
+        for (int i = 0; i < LEVELS; i++) {
+            if (levels[i] != null) {
+                levels[i].flush();
+                levels[i] = null;
+            }
+        }
+    }
+
+    private static BufferedImage halve(BufferedImage before) {
+        int width = Math.max(1, before.getWidth() / 2);
+        int height = Math.max(1, before.getHeight() / 2);
+        BufferedImage after = new BufferedImage(width, height, before.getType());
+        Graphics2D g = after.createGraphics();
+        // Halving one step at a time means bilinear is enough to average every source pixel.
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(before, 0, 0, width, height, null);
+        g.dispose();
+        return after;
+    }
+}
@@ -6,61 +6,26 @@ import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
-import com.intellij.openapi.roots.ProjectRootManager;
-import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileSystemItem;
 import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.ProjectScope;
 import main.core.Core;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 
 public class MyUtils {
-    public static final boolean LOGGING_ENABLED = false;
-
-    public static Point2D.Double toWorldSpace(Point2D point, Core core) {
-        var offset = core.getWorld().getLocation();
-        var safetyPoint = core.zoomPanHandler.getSafetyPoint();
-        return new Point2D.Double(
-                (point.getX() * core.zoomPanHandler.getCurrentZoom() + offset.x + safetyPoint.x),
-                (point.getY() * core.zoomPanHandler.getCurrentZoom() + offset.y + safetyPoint.y)
-        );
-    }
-
-    public static void log(Core core, String text) {
-        if (!LOGGING_ENABLED) return;
-        try {
-            FileUtil.writeToFile(core.log, text + "\n", true);
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-
-    public static Collection<VirtualFile> allFilesIn(Core core) {
-        var result = new HashSet<VirtualFile>();
-        var projectScope = ProjectScope.getAllScope(core.getProject());
-        ProjectRootManager.getInstance(core.getProject()).getFileIndex().iterateContent(fileOrDir -> {
-            if (projectScope.contains(fileOrDir)) result.add(fileOrDir);
-            return true;
-        });
-        return result;
-    }
-
-    public static Collection<PsiFileSystemItem> allPsiItemsIn(Core core) {
+    public static Collection<PsiFileSystemItem> allPsiItemsIn(Core core, Collection<VirtualFile> files) {
         var psiManager = PsiManager.getInstance(core.getProject());
         var result = new HashSet<PsiFileSystemItem>();
-        for (var item : MyUtils.allFilesIn(core)) {
+        for (var item : files) {
             if (!item.isDirectory()) {
                 result.add(psiManager.findFile(item));
             }
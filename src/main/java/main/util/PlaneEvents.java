@@ -0,0 +1,99 @@
+package main.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for ClassPlane's slow phases, so a recording shows them on the same timeline as GC
+ * pauses and EDT stalls.
+ * <p>
+ * Every event is used the same way: begin it, do the work, and only fill in its fields if
+ * {@link Event#shouldCommit()} says it'll be kept. When nothing's recording, that's all the JIT leaves behind.
+ */
+public class PlaneEvents {
+    private static final String CATEGORY = "ClassPlane";
+
+    @Name("classplane.FileDiscovery")
+    @Label("File Discovery")
+    @Description("Finding every class in the plane's scope")
+    @Category(CATEGORY)
+    public static class FileDiscovery extends Event {
+        @Label("Scope")
+        public String scope;
+
+        @Label("Class Count")
+        public int classCount;
+    }
+
+    @Name("classplane.WindowMaterialized")
+    @Label("Window Materialized")
+    @Description("Creating the window for one class")
+    @Category(CATEGORY)
+    public static class WindowMaterialized extends Event {
+        @Label("File Name")
+        public String fileName;
+
+        @Label("File Size")
+        @DataAmount(DataAmount.BYTES)
+        public long fileSize;
+    }
+
+    @Name("classplane.SnapshotRasterized")
+    @Label("Snapshot Rasterized")
+    @Description("Painting a window's editor into its snapshot")
+    @Category(CATEGORY)
+    public static class SnapshotRasterized extends Event {
+        @Label("File Name")
+        public String fileName;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Snapshot Size")
+        @DataAmount(DataAmount.BYTES)
+        public long bytes;
+    }
+
+    @Name("classplane.GraphRebuild")
+    @Label("Extends Graph Rebuild")
+    @Description("Resolving what a batch of windows extend")
+    @Category(CATEGORY)
+    public static class GraphRebuild extends Event {
+        @Label("Window Count")
+        public int windowCount;
+    }
+
+    @Name("classplane.LayoutRun")
+    @Label("Layout Run")
+    @Description("Working out where windows go")
+    @Category(CATEGORY)
+    public static class LayoutRun extends Event {
+        @Label("Mode")
+        public String mode;
+
+        @Label("Window Count")
+        public int windowCount;
+    }
+
+    @Name("classplane.ZoomStep")
+    @Label("Zoom Step")
+    @Description("One frame of the zoom animation")
+    @Category(CATEGORY)
+    public static class ZoomStep extends Event {
+        @Label("Zoom Level")
+        public double zoomLevel;
+
+        @Label("Target Level")
+        public double targetLevel;
+
+        @Label("Window Count")
+        public int windowCount;
+    }
+}
@@ -0,0 +1,167 @@
+package main.util;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * The plugin's own log, cheap enough to leave calls to it in the EDT's busiest paths.
+ * <p>
+ * Messages are only built if their level is on, so pass them as lambdas. Whoever logs just claims a slot in a
+ * ring buffer with one atomic increment, and a pooled thread writes the buffer out to the file every so often.
+ * If the writer falls a whole buffer behind, the oldest records are dropped and the file says how many.
+ * <p>
+ * The level can be changed at any time. While it's off nothing is logged and the writer isn't scheduled at all.
+ */
+public class PlaneLog {
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        OFF
+    }
+
+    private static final Logger LOG = Logger.getInstance(PlaneLog.class);
+    private static final int CAPACITY = 1 << 14;
+    private static final long DRAIN_MILLIS = 250;
+
+    private final AtomicReferenceArray<Record> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong head = new AtomicLong();
+    // Only touched by whoever's draining, which is never more than one thread at a time.
+    private long tail = 0;
+    private volatile Level level = Level.OFF;
+    private File file = null;
+    private ScheduledFuture<?> drainer = null;
+
+    /**
+     * Starts writing to the file, along with anything logged before now.
+     */
+    public synchronized void start(File file) {
+        this.file = file;
+        scheduleDrainer();
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public synchronized void setLevel(Level level) {
+        this.level = level;
+        scheduleDrainer();
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0 && level != Level.OFF;
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message);
+    }
+
+    public void log(Level level, Supplier<String> message) {
+        if (!isEnabled(level)) return;
+        // Built here rather than when it's written, as it may read things that are only safe to read on this thread.
+        var text = message.get();
+        long sequence = head.getAndIncrement();
+        slots.set(index(sequence), new Record(sequence, level, Thread.currentThread().getName(), text));
+    }
+
+    /**
+     * Stops the writer, and writes whatever's left.
+     */
+    public synchronized void dispose() {
+        stopDrainer();
+    }
+
+    /**
+     * Only keeps the writer going while there's a file and the level is on.
+     */
+    private void scheduleDrainer() {
+        if (file == null || level == Level.OFF) {
+            stopDrainer();
+        } else if (drainer == null) {
+            drainer = AppExecutorUtil.getAppScheduledExecutorService()
+                    .scheduleWithFixedDelay(this::drain, DRAIN_MILLIS, DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Cancels the writer, and writes whatever's left.
+     */
+    private void stopDrainer() {
+        if (drainer != null) {
+            drainer.cancel(false);
+            drainer = null;
+        }
+        drain();
+    }
+
+    private synchronized void drain() {
+        if (file == null) return;
+        long published = head.get();
+        if (tail == published) return;
+
+        var format = new SimpleDateFormat("HH:mm:ss.SSS");
+        try (var writer = new BufferedWriter(new FileWriter(file, true))) {
+            while (tail < published) {
+                long oldest = head.get() - CAPACITY;
+                if (tail < oldest) {
+                    writer.write("... " + (oldest - tail) + " records dropped\n");
+                    tail = oldest;
+                    continue;
+                }
+                var record = slots.get(index(tail));
+                // Claimed but not written yet, it'll be picked up next time.
+                if (record == null || record.sequence < tail) break;
+                // Overwritten while we were getting to it, so go round and skip ahead.
+                if (record.sequence > tail) continue;
+
+                writer.write(format.format(new Date(record.millis)));
+                writer.write(" " + record.level + " [" + record.thread + "] ");
+                writer.write(record.text);
+                writer.write('\n');
+                tail++;
+            }
+        } catch (IOException e) {
+            LOG.warn("Couldn't write the plane log to " + file, e);
+        }
+    }
+
+    private static int index(long sequence) {
+        return (int) (sequence & (CAPACITY - 1));
+    }
+
+    private static class Record {
+        final long sequence;
+        final long millis = System.currentTimeMillis();
+        final Level level;
+        final String thread;
+        final String text;
+
+        Record(long sequence, Level level, String thread, String text) {
+            this.sequence = sequence;
+            this.level = level;
+            this.thread = thread;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package main.util;
+
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.openapi.wm.ex.ToolWindowManagerListener;
+import main.components.EditorWindow;
+import main.core.Core;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sits in front of the SettingsManager so moving windows, panning and zooming don't write properties on every event.
+ * <p>
+ * Changes are only remembered in memory, and written out in one batch once the user goes idle,
+ * when the tool window is hidden, or when the plane is disposed.
+ * Reads flush anything pending for what's being read first, so they behave exactly as the SettingsManager's.
+ */
+public class PositionStore {
+    private static final int IDLE_MILLIS = 2000;
+
+    private final Set<EditorWindow> dirtyWindows = new LinkedHashSet<>();
+    private Point dirtyPan = null;
+    private Integer dirtyScale = null;
+    // Kept as a field so the same instance can be removed again.
+    private final Runnable idleListener = this::flush;
+
+    private final Core core;
+    public PositionStore(Core core) {
+        this.core = core;
+        IdeEventQueue.getInstance().addIdleListener(idleListener, IDLE_MILLIS);
+        core.getProject().getMessageBus().connect(core.disposer).subscribe(ToolWindowManagerListener.TOPIC, new ToolWindowManagerListener() {
+            @Override
+            public void stateChanged(@NotNull ToolWindowManager toolWindowManager) {
+                if (!core.toolWindow.isVisible()) flush();
+            }
+        });
+    }
+
+    public void locationChanged(EditorWindow window) {
+        dirtyWindows.add(window);
+    }
+
+    public void panChanged(Point pan) {
+        dirtyPan = new Point(pan);
+    }
+
+    public void scaleChanged(int scale) {
+        dirtyScale = scale;
+    }
+
+    public boolean locationIsSaved(EditorWindow window) {
+        flush(window);
+        return core.settingsManager.locationIsSaved(window);
+    }
+
+    public Point2D.Double loadLocation(EditorWindow window) {
+        flush(window);
+        return core.settingsManager.loadLocationFromFile(window);
+    }
+
+    /**
+     * Drops anything pending for a window that's going away.
+     */
+    public void forget(EditorWindow window) {
+        dirtyWindows.remove(window);
+    }
+
+    public void flush() {
+        if (dirtyWindows.isEmpty() && dirtyPan == null && dirtyScale == null) return;
+        core.log.debug(() -> "Flushing " + dirtyWindows.size() + " window locations");
+
+        for (var window : dirtyWindows) {
+            core.settingsManager.saveLocationToFile(window);
+        }
+        dirtyWindows.clear();
+        if (dirtyPan != null) {
+            core.settingsManager.savePan(dirtyPan);
+            dirtyPan = null;
+        }
+        if (dirtyScale != null) {
+            core.settingsManager.saveScale(dirtyScale);
+            dirtyScale = null;
+        }
+    }
+
+    public void dispose() {
+        flush();
+        IdeEventQueue.getInstance().removeIdleListener(idleListener);
+    }
+
+    /**
+     * Writes out anything pending for just the one window, for when it's going away but may come back.
+     */
+    public void flush(EditorWindow window) {
+        if (dirtyWindows.remove(window)) {
+            core.settingsManager.saveLocationToFile(window);
+        }
+    }
+}
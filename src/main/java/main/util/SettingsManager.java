@@ -3,6 +3,9 @@ package main.util;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.vfs.VirtualFile;
 import main.components.EditorWindow;
+import main.components.Layout;
+import main.components.PlaneScope;
+import main.components.SnapshotStore;
 import main.components.World;
 import main.core.Core;
 
@@ -34,6 +37,23 @@ public class SettingsManager {
         return PropertiesComponent.getInstance().getBoolean(PREFIX + "showTutorial", true);
     }
 
+    public int loadSnapshotBudgetMb() {
+        return PropertiesComponent.getInstance().getInt(PREFIX + "snapshotBudgetMb", SnapshotStore.DEFAULT_BUDGET_MB);
+    }
+
+    public PlaneLog.Level loadLogLevel() {
+        String level = PropertiesComponent.getInstance().getValue(PREFIX + "logLevel", PlaneLog.Level.OFF.name());
+        try {
+            return PlaneLog.Level.valueOf(level);
+        } catch (IllegalArgumentException e) {
+            return PlaneLog.Level.OFF;
+        }
+    }
+
+    public void saveLogLevel(PlaneLog.Level level) {
+        PropertiesComponent.getInstance().setValue(PREFIX + "logLevel", level.name(), PlaneLog.Level.OFF.name());
+    }
+
     public void savePan(Point pan) {
         props().setValue(PREFIX + "panning.x", pan.x, -World.SIZE / 2);
         props().setValue(PREFIX + "panning.y", pan.y, -World.SIZE / 2);
@@ -46,6 +66,27 @@ public class SettingsManager {
         return rv;
     }
 
+    public Layout.Mode loadLayoutMode() {
+        String mode = props().getValue(PREFIX + "layoutMode", Layout.Mode.HIERARCHY.name());
+        try {
+            return Layout.Mode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            return Layout.Mode.HIERARCHY;
+        }
+    }
+
+    public void saveLayoutMode(Layout.Mode mode) {
+        props().setValue(PREFIX + "layoutMode", mode.name(), Layout.Mode.HIERARCHY.name());
+    }
+
+    public PlaneScope loadScope() {
+        return PlaneScope.parse(props().getValue(PREFIX + "scope", PlaneScope.WHOLE_PROJECT.serialize()));
+    }
+
+    public void saveScope(PlaneScope scope) {
+        props().setValue(PREFIX + "scope", scope.serialize(), PlaneScope.WHOLE_PROJECT.serialize());
+    }
+
     public int loadScaleFromFile() {
         return props().getInt(PREFIX + "scale", 0);
     }
@@ -56,15 +97,26 @@ public class SettingsManager {
 
     public boolean locationIsSaved(EditorWindow editorWindow) {
         String path = getFilePropertyPath(editorWindow.getVirtualFile());
-        float test = props().getFloat(path + ".y", -1f);
-        return test != -1f;
+        float test = props().getFloat(path + ".worldY", -1f);
+        float legacyTest = props().getFloat(path + ".y", -1f);
+        return test != -1f || legacyTest != -1f;
     }
 
+    /**
+     * @return The window's location in world space, independent of zoom.
+     */
     public Point2D.Double loadLocationFromFile(EditorWindow editorWindow) {
         String path = getFilePropertyPath(editorWindow.getVirtualFile());
         Point2D.Double rv = new Point2D.Double();
-        rv.x = props().getFloat(path + ".x", World.SIZE / 2f);
-        rv.y = props().getFloat(path + ".y", World.SIZE / 2f);
+        if (props().getFloat(path + ".worldY", -1f) == -1f && props().getFloat(path + ".y", -1f) != -1f) {
+            // Saved before locations were zoom independent, back when they were scaled by the saved zoom.
+            double zoom = Math.pow(0.5, loadScaleFromFile());
+            rv.x = props().getFloat(path + ".x", World.SIZE / 2f) / zoom;
+            rv.y = props().getFloat(path + ".y", World.SIZE / 2f) / zoom;
+            return rv;
+        }
+        rv.x = props().getFloat(path + ".worldX", World.SIZE / 2f);
+        rv.y = props().getFloat(path + ".worldY", World.SIZE / 2f);
         return rv;
     }
 
@@ -76,7 +128,9 @@ public class SettingsManager {
     public void saveLocationToFile(EditorWindow editorWindow) {
         String path = getFilePropertyPath(editorWindow.getVirtualFile());
         Point2D.Double location = editorWindow.getTrueLocation();
-        props().setValue(path + ".x", (float) location.x, World.SIZE / 2f);
-        props().setValue(path + ".y", (float) location.y, World.SIZE / 2f);
+        props().setValue(path + ".worldX", (float) location.x, World.SIZE / 2f);
+        props().setValue(path + ".worldY", (float) location.y, World.SIZE / 2f);
+        props().unsetValue(path + ".x");
+        props().unsetValue(path + ".y");
     }
 }
@@ -0,0 +1,173 @@
+package main.util;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packs rectangles into a shape close to a target aspect ratio, without overlaps.
+ * <p>
+ * Rectangles are placed tallest first, each at whichever spot along the skyline (the outline of everything
+ * placed so far) leaves its bottom edge highest up, ties going to the left. The strip width is first guessed
+ * from the total area and then nudged a few times until the packed result is close to the ratio asked for.
+ */
+public class SkylinePacker {
+    private static final int WIDTH_ATTEMPTS = 4;
+
+    private final double spacing;
+
+    /**
+     * @param spacing The gap left between any two rectangles.
+     */
+    public SkylinePacker(double spacing) {
+        this.spacing = spacing;
+    }
+
+    /**
+     * @param widths  The width of each rectangle.
+     * @param heights The height of each rectangle.
+     * @param aspect  The width over the height wanted for the whole packing.
+     * @return The top left of each rectangle, with the packing's own top left at 0, 0.
+     */
+    public Point2D.Double[] pack(double[] widths, double[] heights, double aspect) {
+        int count = widths.length;
+        if (count == 0) return new Point2D.Double[0];
+
+        double area = 0;
+        double widest = 0;
+        for (int i = 0; i < count; i++) {
+            area += (widths[i] + spacing) * (heights[i] + spacing);
+            widest = Math.max(widest, widths[i] + spacing);
+        }
+
+        double stripWidth = Math.max(widest, Math.sqrt(area * aspect));
+        Point2D.Double[] best = null;
+        double bestError = Double.MAX_VALUE;
+        for (int attempt = 0; attempt < WIDTH_ATTEMPTS; attempt++) {
+            var positions = packInto(stripWidth, widths, heights);
+            double usedWidth = 0;
+            double usedHeight = 0;
+            for (int i = 0; i < count; i++) {
+                usedWidth = Math.max(usedWidth, positions[i].x + widths[i]);
+                usedHeight = Math.max(usedHeight, positions[i].y + heights[i]);
+            }
+            double ratio = usedWidth / Math.max(1, usedHeight);
+            double error = Math.abs(Math.log(ratio / aspect));
+            if (error < bestError) {
+                bestError = error;
+                best = positions;
+            }
+            // Widening a strip by some factor shortens it by roughly the same factor, so the ratio moves by its square.
+            double next = Math.max(widest, stripWidth * Math.sqrt(aspect / ratio));
+            if (Math.abs(next - stripWidth) < 1) break;
+            stripWidth = next;
+        }
+        return best;
+    }
+
+    private Point2D.Double[] packInto(double stripWidth, double[] widths, double[] heights) {
+        int count = widths.length;
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) order.add(i);
+        // Stable, so equal heights keep the order they were given in.
+        order.sort(Comparator.comparingDouble(i -> -heights[i]));
+
+        var skyline = new ArrayList<Segment>();
+        skyline.add(new Segment(0, 0, stripWidth));
+        var positions = new Point2D.Double[count];
+
+        for (int i : order) {
+            double width = widths[i] + spacing;
+            double height = heights[i] + spacing;
+
+            int bestStart = -1;
+            double bestX = 0;
+            double bestY = Double.MAX_VALUE;
+            for (int start = 0; start < skyline.size(); start++) {
+                double x = skyline.get(start).x;
+                double y = restingHeight(skyline, start, width, stripWidth);
+                if (y < 0) continue;
+                // Going left to right, so ties already go to the leftmost spot.
+                if (y < bestY - 1e-9) {
+                    bestStart = start;
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+            if (bestStart == -1) {
+                // The strip is always at least as wide as the widest rectangle, but just in case, it goes under everything.
+                bestX = 0;
+                bestY = 0;
+                for (var segment : skyline) bestY = Math.max(bestY, segment.y);
+            }
+
+            positions[i] = new Point2D.Double(bestX, bestY);
+            raise(skyline, bestX, width, bestY + height);
+        }
+        return positions;
+    }
+
+    /**
+     * @return How far down something this wide would rest if its left edge was at the start of the segment,
+     * or -1 if it would stick out past the strip.
+     */
+    private static double restingHeight(List<Segment> skyline, int start, double width, double stripWidth) {
+        double left = skyline.get(start).x;
+        if (left + width > stripWidth + 1e-9) return -1;
+        double y = 0;
+        for (int i = start; i < skyline.size() && skyline.get(i).x < left + width - 1e-9; i++) {
+            y = Math.max(y, skyline.get(i).y);
+        }
+        return y;
+    }
+
+    /**
+     * Raises the skyline between left and left + width up to y, merging segments that end up level.
+     */
+    private static void raise(List<Segment> skyline, double left, double width, double y) {
+        double right = left + width;
+        var raised = new ArrayList<Segment>();
+        boolean inserted = false;
+        for (var segment : skyline) {
+            double segmentRight = segment.x + segment.width;
+            if (segmentRight <= left + 1e-9 || segment.x >= right - 1e-9) {
+                if (!inserted && segment.x >= right - 1e-9) {
+                    raised.add(new Segment(left, y, width));
+                    inserted = true;
+                }
+                raised.add(segment);
+                continue;
+            }
+            if (segment.x < left) raised.add(new Segment(segment.x, segment.y, left - segment.x));
+            if (!inserted) {
+                raised.add(new Segment(left, y, width));
+                inserted = true;
+            }
+            if (segmentRight > right) raised.add(new Segment(right, segment.y, segmentRight - right));
+        }
+        if (!inserted) raised.add(new Segment(left, y, width));
+
+        skyline.clear();
+        for (var segment : raised) {
+            var last = skyline.isEmpty() ? null : skyline.get(skyline.size() - 1);
+            if (last != null && last.y == segment.y) {
+                last.width += segment.width;
+            } else {
+                skyline.add(segment);
+            }
+        }
+    }
+
+    private static class Segment {
+        final double x;
+        final double y;
+        double width;
+
+        Segment(double x, double y, double width) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package main.util;
+
+import java.awt.*;
+import java.util.List;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * A uniform grid of buckets for quickly finding which items overlap a given area.
+ * <p>
+ * Each item is stored in every cell its bounds touch, so a query only has to look at the cells
+ * it covers, no matter how many items are stored elsewhere. A query covering more cells than are
+ * in use (zoomed far out, say) looks through the cells in use instead, so it never costs more than
+ * what's actually stored.
+ *
+ * @param <T> The type of item being stored.
+ */
+public class SpatialGrid<T> {
+    private final int cellSize;
+    private final CellMap<List<T>> cells = new CellMap<>();
+    private final Map<T, Rectangle> bounds = new HashMap<>();
+
+    public SpatialGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void put(T item, Rectangle itemBounds) {
+        var old = bounds.get(item);
+        if (itemBounds.equals(old)) return;
+        if (old != null) removeFromCells(item, old);
+
+        var copy = new Rectangle(itemBounds);
+        bounds.put(item, copy);
+        forEachCell(copy, key -> {
+            var cell = cells.get(key);
+            if (cell == null) {
+                cell = new ArrayList<>();
+                cells.put(key, cell);
+            }
+            cell.add(item);
+        });
+    }
+
+    public void remove(T item) {
+        var old = bounds.remove(item);
+        if (old != null) removeFromCells(item, old);
+    }
+
+    public Rectangle getBounds(T item) {
+        return bounds.get(item);
+    }
+
+    public boolean contains(T item) {
+        return bounds.containsKey(item);
+    }
+
+    public int size() {
+        return bounds.size();
+    }
+
+    /**
+     * @return Every item whose bounds intersect the area.
+     */
+    public Set<T> query(Rectangle area) {
+        var result = new LinkedHashSet<T>();
+        int minX = Math.floorDiv(area.x, cellSize);
+        int minY = Math.floorDiv(area.y, cellSize);
+        int maxX = lastCell(area.x, area.width);
+        int maxY = lastCell(area.y, area.height);
+        long covered = (maxX - (long) minX + 1) * (maxY - (long) minY + 1);
+        if (covered <= cells.size()) {
+            forEachCell(area, key -> addIntersecting(cells.get(key), area, result));
+            return result;
+        }
+        for (int slot = 0; slot < cells.capacity(); slot++) {
+            var cell = cells.valueAt(slot);
+            if (cell == null) continue;
+            long key = cells.keyAt(slot);
+            int x = (int) (key >> 32);
+            int y = (int) key;
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) addIntersecting(cell, area, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return Whether anything other than the ignored item intersects the area.
+     */
+    public boolean anyIntersect(Rectangle area, T ignore) {
+        for (T item : query(area)) {
+            if (item != ignore) return true;
+        }
+        return false;
+    }
+
+    private void addIntersecting(List<T> cell, Rectangle area, Set<T> result) {
+        if (cell == null) return;
+        for (T item : cell) {
+            if (bounds.get(item).intersects(area)) result.add(item);
+        }
+    }
+
+    private void removeFromCells(T item, Rectangle old) {
+        forEachCell(old, key -> {
+            var cell = cells.get(key);
+            if (cell == null) return;
+            cell.remove(item);
+            if (cell.isEmpty()) cells.remove(key);
+        });
+    }
+
+    private void forEachCell(Rectangle area, LongConsumer action) {
+        int minX = Math.floorDiv(area.x, cellSize);
+        int minY = Math.floorDiv(area.y, cellSize);
+        int maxX = lastCell(area.x, area.width);
+        int maxY = lastCell(area.y, area.height);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                action.accept(((long) x << 32) | (y & 0xFFFFFFFFL));
+            }
+        }
+    }
+
+    /**
+     * Inclusive, but a zero-sized area still touches the cell it sits in.
+     */
+    private int lastCell(int start, int length) {
+        return Math.floorDiv(start + Math.max(length, 1) - 1, cellSize);
+    }
+
+    /**
+     * An open addressing hash map from cell keys to values, so looking up a cell doesn't box its key.
+     */
+    private static class CellMap<V> {
+        // Never a real key, as that would need a cell index of Integer.MIN_VALUE.
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(16);
+        private Object[] values = new Object[16];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        long keyAt(int slot) {
+            return keys[slot];
+        }
+
+        @SuppressWarnings("unchecked")
+        V valueAt(int slot) {
+            return (V) values[slot];
+        }
+
+        V get(long key) {
+            int slot = find(key);
+            return slot == -1 ? null : valueAt(slot);
+        }
+
+        void put(long key, V value) {
+            if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+            int mask = keys.length - 1;
+            int slot = home(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+            if (keys[slot] == EMPTY) size++;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        void remove(long key) {
+            int slot = find(key);
+            if (slot == -1) return;
+            int mask = keys.length - 1;
+            // Shifts back anything after it that would otherwise no longer be found, rather than leaving a marker.
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == EMPTY) break;
+                int wanted = home(keys[next], mask);
+                boolean between = slot <= next ? slot < wanted && wanted <= next : slot < wanted || wanted <= next;
+                if (between) continue;
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            keys[slot] = EMPTY;
+            values[slot] = null;
+            size--;
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = home(key, mask);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void resize(int capacity) {
+            var oldKeys = keys;
+            var oldValues = values;
+            keys = newKeys(capacity);
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    @SuppressWarnings("unchecked") V value = (V) oldValues[i];
+                    put(oldKeys[i], value);
+                }
+            }
+        }
+
+        private static int home(long key, int mask) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32)) & mask;
+        }
+
+        private static long[] newKeys(int capacity) {
+            var keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
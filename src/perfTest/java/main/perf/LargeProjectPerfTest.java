@@ -0,0 +1,235 @@
+package main.perf;
+
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import main.core.Core;
+import main.fixtures.SyntheticHierarchy;
+import main.util.SettingsManager;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Loads a big made up project the same way opening the tool window does, and fails if it's got slower.
+ * <p>
+ * Sizes and thresholds all come from system properties, which the perfTest task in build.gradle fills in
+ * from Gradle properties, so CI can tighten them as things improve. Results are written to the file in
+ * classplane.perf.report, one line per measurement, for diffing between versions.
+ */
+public class LargeProjectPerfTest extends LightJavaCodeInsightFixtureTestCase {
+    private static final int CLASSES = Integer.getInteger("classplane.perf.classes", 2000);
+    private static final SyntheticHierarchy.Shape SHAPE = SyntheticHierarchy.Shape.valueOf(System.getProperty("classplane.perf.shape", "FOREST"));
+    private static final long MAX_LOAD_MILLIS = Long.getLong("classplane.perf.maxLoadMillis", 60_000);
+    private static final long MAX_EDT_STALL_MILLIS = Long.getLong("classplane.perf.maxEdtStallMillis", 250);
+    private static final long MAX_HEAP_PER_WINDOW_KB = Long.getLong("classplane.perf.maxHeapPerWindowKb", 512);
+    private static final double MAX_ZOOM_STEP_P95_MILLIS = Double.parseDouble(System.getProperty("classplane.perf.maxZoomStepP95Millis", "16"));
+    private static final String REPORT = System.getProperty("classplane.perf.report");
+
+    private static final long TIMEOUT_MILLIS = 10 * 60_000;
+    private static final int CLASSES_PER_PACKAGE = 50;
+    private static final int ZOOM_LEVELS = 3;
+    private static final Point ZOOM_ANCHOR = new Point(800, 500);
+
+    private Core core;
+
+    /**
+     * Everything in one package, so nothing is clustered away and every class costs a full window.
+     */
+    public void testEveryClassGetsAWindow() throws Exception {
+        SyntheticProject.generate(myFixture, "unclustered", SHAPE, CLASSES, CLASSES);
+        var result = load("unclustered");
+        assertEquals(CLASSES, core.editorWindowManager.getWindows().size());
+        zoom(result);
+        report(result);
+
+        assertBelow(result, "loadMillis", MAX_LOAD_MILLIS);
+        assertBelow(result, "edtStallMillis", MAX_EDT_STALL_MILLIS);
+        assertBelow(result, "heapPerWindowKb", MAX_HEAP_PER_WINDOW_KB);
+        assertBelow(result, "zoomStepP95Millis", MAX_ZOOM_STEP_P95_MILLIS);
+    }
+
+    /**
+     * Spread over packages like a real project, so big projects only pay for the packages on screen.
+     */
+    public void testClusteredProject() throws Exception {
+        SyntheticProject.generate(myFixture, "clustered", SHAPE, CLASSES, CLASSES_PER_PACKAGE);
+        var result = load("clustered");
+        report(result);
+
+        assertBelow(result, "loadMillis", MAX_LOAD_MILLIS);
+        assertBelow(result, "edtStallMillis", MAX_EDT_STALL_MILLIS);
+    }
+
+    private Result load(String name) throws Exception {
+        var result = new Result(name);
+        long heapBefore = usedHeapAfterGc();
+        var probe = new EdtProbe();
+
+        long start = System.nanoTime();
+        core = startCore();
+        core.createFiles();
+        waitFor(() -> !core.isLoading());
+        result.put("loadMillis", (System.nanoTime() - start) / 1_000_000);
+        // The layout finishes up on the EDT just after loading does.
+        settle();
+        result.put("edtStallMillis", probe.stop());
+        result.put("loadBatchMaxMillis", core.metrics.loadBatch.getMaxNanos() / 1_000_000);
+
+        int windows = core.editorWindowManager.getWindows().size();
+        long retained = usedHeapAfterGc() - heapBefore;
+        result.put("windows", windows);
+        result.put("heapPerClassKb", retained / CLASSES / 1024);
+        if (windows > 0) result.put("heapPerWindowKb", retained / windows / 1024);
+        return result;
+    }
+
+    private void zoom(Result result) throws Exception {
+        core.metrics.reset();
+        for (int i = 0; i < ZOOM_LEVELS * 2; i++) {
+            // All the way out, then back in again.
+            core.zoomPanHandler.zoomBy(i < ZOOM_LEVELS ? 1 : -1, ZOOM_ANCHOR);
+            waitFor(() -> !core.zoomPanHandler.isAnimating());
+        }
+        result.put("zoomSteps", core.metrics.zoomStep.getCount());
+        result.put("zoomStepP95Millis", core.metrics.zoomStep.percentileNanos(0.95) / 1e6);
+        result.put("zoomStepMaxMillis", core.metrics.zoomStep.getMaxNanos() / 1e6);
+    }
+
+    private Core startCore() {
+        var started = new Core(visibleToolWindow());
+        started.disposer = () -> started.dispose();
+        Disposer.register(getTestRootDisposable(), started.disposer);
+        // Its dialogs would block a headless run.
+        new SettingsManager(started).setDoNotShow();
+        started.preProjectSetup();
+        started.start(getProject());
+        return started;
+    }
+
+    /**
+     * Keeps the EDT pumping, as this test runs on it and everything being measured needs it.
+     */
+    private static void waitFor(BooleanSupplier condition) throws Exception {
+        long start = System.currentTimeMillis();
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() - start > TIMEOUT_MILLIS) fail("Timed out");
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+            Thread.sleep(1);
+        }
+    }
+
+    private static void settle() throws Exception {
+        long start = System.currentTimeMillis();
+        waitFor(() -> System.currentTimeMillis() - start > 500);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        var memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void assertBelow(Result result, String key, double limit) {
+        double value = result.get(key);
+        assertTrue(result.name + " " + key + " was " + value + ", over the limit of " + limit, value <= limit);
+    }
+
+    private static void report(Result result) throws IOException {
+        var lines = new ArrayList<String>();
+        for (var entry : result.values) {
+            lines.add(result.name + "." + entry[0] + "=" + entry[1]);
+        }
+        lines.forEach(System.out::println);
+        if (REPORT == null) return;
+        var file = new File(REPORT);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Nothing here needs a real tool window, just one that says it's showing so loading carries on.
+     */
+    private static ToolWindow visibleToolWindow() {
+        return (ToolWindow) Proxy.newProxyInstance(ToolWindow.class.getClassLoader(), new Class[]{ToolWindow.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isVisible":
+                    return true;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Perf test tool window";
+            }
+            var type = method.getReturnType();
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            return null;
+        });
+    }
+
+    private static class Result {
+        final String name;
+        final List<Object[]> values = new ArrayList<>();
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        void put(String key, Number value) {
+            values.add(new Object[]{key, value});
+        }
+
+        double get(String key) {
+            for (var entry : values) {
+                if (entry[0].equals(key)) return ((Number) entry[1]).doubleValue();
+            }
+            throw new IllegalArgumentException(key);
+        }
+    }
+
+    /**
+     * Posts to the EDT every few milliseconds and keeps the longest any of them had to wait, which is the
+     * longest the EDT went without getting to its queue.
+     */
+    private static class EdtProbe {
+        private static final long INTERVAL_MILLIS = 5;
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final AtomicLong worstNanos = new AtomicLong();
+
+        EdtProbe() {
+            executor.scheduleAtFixedRate(() -> {
+                long posted = System.nanoTime();
+                SwingUtilities.invokeLater(() -> worstNanos.accumulateAndGet(System.nanoTime() - posted, Math::max));
+            }, 0, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return The longest wait in milliseconds.
+         */
+        long stop() {
+            executor.shutdownNow();
+            return worstNanos.get() / 1_000_000;
+        }
+    }
+}
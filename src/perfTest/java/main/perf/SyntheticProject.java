@@ -0,0 +1,46 @@
+package main.perf;
+
+import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture;
+import main.fixtures.SyntheticHierarchy;
+
+import java.util.Random;
+
+/**
+ * Writes a made up project into a test fixture, with whatever shape of hierarchy is wanted.
+ * <p>
+ * Always built from the same seed, so runs from different versions load the same code.
+ */
+public class SyntheticProject {
+    private static final int MAX_METHODS = 20;
+
+    /**
+     * @param basePackage       Kept different for every test, as light fixtures share one project between tests.
+     * @param classesPerPackage How many classes go in each package, or the class count for them all to share one.
+     */
+    public static void generate(JavaCodeInsightTestFixture fixture, String basePackage, SyntheticHierarchy.Shape shape, int classCount, int classesPerPackage) {
+        int[] parents = SyntheticHierarchy.parents(shape, classCount);
+        var random = new Random(SyntheticHierarchy.SEED);
+        for (int i = 0; i < classCount; i++) {
+            int parent = parents[i];
+            var packageName = packageOf(basePackage, i, classesPerPackage);
+            var text = new StringBuilder();
+            text.append("package ").append(packageName).append(";\n\n");
+            text.append("public class Class").append(i);
+            if (parent != -1) text.append(" extends ").append(packageOf(basePackage, parent, classesPerPackage)).append(".Class").append(parent);
+            text.append(" {\n");
+            // Some body, so the windows are as big as real ones and the loader has real documents to read.
+            int methods = 1 + random.nextInt(MAX_METHODS);
+            for (int m = 0; m < methods; m++) {
+                text.append("    public int method").append(m).append("(int value) {\n");
+                text.append("        return value * ").append(m).append(" + ").append(i).append(";\n");
+                text.append("    }\n\n");
+            }
+            text.append("}\n");
+            fixture.addFileToProject(packageName.replace('.', '/') + "/Class" + i + ".java", text.toString());
+        }
+    }
+
+    private static String packageOf(String basePackage, int index, int classesPerPackage) {
+        return basePackage + ".p" + index / classesPerPackage;
+    }
+}
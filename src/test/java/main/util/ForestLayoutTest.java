@@ -0,0 +1,66 @@
+package main.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static main.util.LayoutAssertions.*;
+import static org.junit.Assert.*;
+
+public class ForestLayoutTest {
+    private static final double SPACING = 20;
+
+    @Test
+    public void separateTreesDontOverlap() {
+        var random = new Random(42);
+        var layout = new ForestLayout(SPACING, 16 / 9.0);
+        int count = 300;
+        double[][] sizes = new double[count][];
+        int[] parents = new int[count];
+        for (int node = 0; node < count; node++) {
+            sizes[node] = new double[]{20 + random.nextInt(300), 20 + random.nextInt(300)};
+            layout.addNode(sizes[node][0], sizes[node][1]);
+            // Lots of roots, so there are plenty of trees to pack.
+            parents[node] = node == 0 || random.nextInt(4) == 0 ? -1 : random.nextInt(node);
+            if (parents[node] >= 0) layout.addEdge(node, parents[node]);
+        }
+
+        var positions = layout.compute();
+        assertEquals(count, positions.length);
+        assertNoOverlap(positions, sizes, SPACING);
+        assertStartsAtOrigin(positions);
+        for (int node = 0; node < count; node++) {
+            if (parents[node] >= 0) assertBelow(positions, sizes, SPACING, node, parents[node]);
+        }
+    }
+
+    @Test
+    public void sameInputSameLayout() {
+        var first = build().compute();
+        var second = build().compute();
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void unconnectedNodesAllGetPlaced() {
+        var layout = new ForestLayout(SPACING, 1);
+        double[][] sizes = new double[50][];
+        for (int node = 0; node < sizes.length; node++) {
+            sizes[node] = new double[]{100, 60};
+            layout.addNode(100, 60);
+        }
+
+        var positions = layout.compute();
+        assertNoOverlap(positions, sizes, SPACING);
+    }
+
+    private static ForestLayout build() {
+        var random = new Random(7);
+        var layout = new ForestLayout(SPACING, 1);
+        for (int node = 0; node < 100; node++) {
+            layout.addNode(20 + random.nextInt(100), 20 + random.nextInt(100));
+            if (node > 0 && random.nextInt(3) > 0) layout.addEdge(node, random.nextInt(node));
+        }
+        return layout;
+    }
+}
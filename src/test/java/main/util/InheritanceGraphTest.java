@@ -0,0 +1,111 @@
+package main.util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InheritanceGraphTest {
+    private final InheritanceGraph<String> graph = new InheritanceGraph<>();
+
+    @Test
+    public void linksParentsAddedInEitherOrder() {
+        graph.put("child", "a.Child");
+        graph.setParents("child", List.of("a.Parent"));
+        assertTrue(graph.getParents("child").isEmpty());
+
+        graph.put("parent", "a.Parent");
+        assertEquals(List.of("parent"), graph.getParents("child"));
+        assertEquals(List.of("child"), graph.getChildren("parent"));
+    }
+
+    @Test
+    public void renamingMovesTheEdges() {
+        graph.put("parent", "a.Parent");
+        graph.put("child", "a.Child");
+        graph.setParents("child", List.of("a.Parent"));
+
+        graph.put("parent", "a.Renamed");
+        assertNull(graph.get("a.Parent"));
+        assertEquals("parent", graph.get("a.Renamed"));
+        assertTrue(graph.getParents("child").isEmpty());
+        assertTrue(graph.getChildren("parent").isEmpty());
+
+        // The child still wants the old name, so it comes back when something takes it again.
+        graph.put("parent", "a.Parent");
+        assertEquals(List.of("parent"), graph.getParents("child"));
+    }
+
+    @Test
+    public void removingUnlinksBothWays() {
+        graph.put("parent", "a.Parent");
+        graph.put("child", "a.Child");
+        graph.put("grandchild", "a.Grandchild");
+        graph.setParents("child", List.of("a.Parent"));
+        graph.setParents("grandchild", List.of("a.Child"));
+
+        graph.remove("child");
+        assertEquals(2, graph.size());
+        assertNull(graph.get("a.Child"));
+        assertTrue(graph.getChildren("parent").isEmpty());
+        assertTrue(graph.getParents("grandchild").isEmpty());
+
+        // Added back, it picks up the grandchild that was waiting for it, but not the parent it asked for before.
+        graph.put("child", "a.Child");
+        assertEquals(List.of("child"), graph.getParents("grandchild"));
+        assertTrue(graph.getParents("child").isEmpty());
+    }
+
+    @Test
+    public void duplicateNamePromotedWhenFirstGoes() {
+        graph.put("first", "a.Same");
+        graph.put("second", "a.Same");
+        graph.put("child", "a.Child");
+        graph.setParents("child", List.of("a.Same"));
+        assertEquals("first", graph.get("a.Same"));
+        assertEquals(List.of("first"), graph.getParents("child"));
+
+        graph.remove("first");
+        assertEquals("second", graph.get("a.Same"));
+        assertEquals(List.of("second"), graph.getParents("child"));
+        assertEquals(List.of("child"), graph.getChildren("second"));
+    }
+
+    @Test
+    public void duplicateNamePromotedWhenFirstIsRenamed() {
+        graph.put("first", "a.Same");
+        graph.put("second", "a.Same");
+        graph.put("child", "a.Child");
+        graph.setParents("child", List.of("a.Same"));
+
+        graph.put("first", "a.Other");
+        assertEquals("second", graph.get("a.Same"));
+        assertEquals(List.of("second"), graph.getParents("child"));
+        assertTrue(graph.getChildren("first").isEmpty());
+    }
+
+    @Test
+    public void settingParentsReplacesThem() {
+        graph.put("a", "a.A");
+        graph.put("b", "a.B");
+        graph.put("child", "a.Child");
+        graph.setParents("child", List.of("a.A"));
+        graph.setParents("child", List.of("a.B"));
+        assertEquals(List.of("b"), graph.getParents("child"));
+        assertTrue(graph.getChildren("a").isEmpty());
+
+        graph.setParents("child", Collections.emptyList());
+        assertTrue(graph.getParents("child").isEmpty());
+        assertTrue(graph.getChildren("b").isEmpty());
+    }
+
+    @Test
+    public void ignoresExtendingItself() {
+        graph.put("node", "a.Node");
+        graph.setParents("node", List.of("a.Node"));
+        assertTrue(graph.getParents("node").isEmpty());
+        assertTrue(graph.getChildren("node").isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package main.util;
+
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import static main.util.LayoutAssertions.*;
+import static org.junit.Assert.*;
+
+public class LayeredLayoutTest {
+    private static final double SPACING = 20;
+
+    @Test
+    public void emptyLayout() {
+        assertEquals(0, new LayeredLayout(SPACING).compute().length);
+    }
+
+    @Test
+    public void childrenGoBelowTheirLowestParent() {
+        var layout = new LayeredLayout(SPACING);
+        double[][] sizes = {{100, 50}, {80, 120}, {60, 40}, {90, 30}};
+        for (var size : sizes) layout.addNode(size[0], size[1]);
+        // 2 extends both the root and 1, which is already a row down.
+        layout.addEdge(1, 0);
+        layout.addEdge(2, 0);
+        layout.addEdge(2, 1);
+        layout.addEdge(3, 2);
+
+        var positions = layout.compute();
+        assertBelow(positions, sizes, SPACING, 1, 0);
+        assertBelow(positions, sizes, SPACING, 2, 1);
+        assertBelow(positions, sizes, SPACING, 3, 2);
+        assertNoOverlap(positions, sizes, SPACING);
+        assertStartsAtOrigin(positions);
+    }
+
+    @Test
+    public void siblingsShareARow() {
+        var layout = new LayeredLayout(SPACING);
+        double[][] sizes = {{100, 50}, {80, 40}, {80, 60}, {80, 40}};
+        for (var size : sizes) layout.addNode(size[0], size[1]);
+        for (int child = 1; child < sizes.length; child++) layout.addEdge(child, 0);
+
+        var positions = layout.compute();
+        assertEquals(positions[1].y, positions[2].y, 0);
+        assertEquals(positions[1].y, positions[3].y, 0);
+        assertNoOverlap(positions, sizes, SPACING);
+    }
+
+    @Test
+    public void randomHierarchiesDontOverlap() {
+        var random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            int count = 1 + random.nextInt(60);
+            var layout = new LayeredLayout(SPACING);
+            double[][] sizes = new double[count][];
+            int[] parents = new int[count];
+            for (int node = 0; node < count; node++) {
+                sizes[node] = new double[]{20 + random.nextInt(200), 20 + random.nextInt(200)};
+                layout.addNode(sizes[node][0], sizes[node][1]);
+                parents[node] = node == 0 || random.nextInt(5) == 0 ? -1 : random.nextInt(node);
+                if (parents[node] >= 0) layout.addEdge(node, parents[node]);
+            }
+
+            var positions = layout.compute();
+            assertNoOverlap(positions, sizes, SPACING);
+            for (int node = 0; node < count; node++) {
+                if (parents[node] >= 0) assertBelow(positions, sizes, SPACING, node, parents[node]);
+            }
+        }
+    }
+
+    @Test
+    public void cyclesDontStopItFinishing() {
+        var layout = new LayeredLayout(SPACING);
+        double[][] sizes = {{50, 50}, {50, 50}, {50, 50}};
+        for (var size : sizes) layout.addNode(size[0], size[1]);
+        layout.addEdge(1, 0);
+        layout.addEdge(2, 1);
+        layout.addEdge(0, 2);
+
+        var positions = layout.compute();
+        assertEquals(3, positions.length);
+        assertNoOverlap(positions, sizes, SPACING);
+    }
+
+    @Test
+    public void longChainDoesntOverflowTheStack() {
+        int count = 100_000;
+        var layout = new LayeredLayout(SPACING);
+        for (int node = 0; node < count; node++) layout.addNode(10, 10);
+        // Added child first, so the walk up from the first node goes through all of them.
+        for (int node = 0; node + 1 < count; node++) layout.addEdge(node, node + 1);
+
+        Point2D.Double[] positions = layout.compute();
+        assertEquals(0, positions[count - 1].y, 0);
+        assertEquals((count - 1) * (10 + SPACING), positions[0].y, 1e-6);
+    }
+}
@@ -0,0 +1,48 @@
+package main.util;
+
+import java.awt.geom.Point2D;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks shared by the layout tests.
+ */
+class LayoutAssertions {
+    // The layouts work in doubles, so gaps that should be exactly the spacing can come out a hair under.
+    private static final double EPSILON = 1e-6;
+
+    private LayoutAssertions() {
+    }
+
+    /**
+     * Every pair of nodes is at least the spacing apart, across or down.
+     */
+    static void assertNoOverlap(Point2D.Double[] positions, double[][] sizes, double spacing) {
+        for (int a = 0; a < positions.length; a++) {
+            for (int b = a + 1; b < positions.length; b++) {
+                double gapAcross = Math.max(positions[b].x - (positions[a].x + sizes[a][0]), positions[a].x - (positions[b].x + sizes[b][0]));
+                double gapDown = Math.max(positions[b].y - (positions[a].y + sizes[a][1]), positions[a].y - (positions[b].y + sizes[b][1]));
+                assertTrue("Nodes " + a + " at " + positions[a] + " and " + b + " at " + positions[b] + " are too close",
+                        Math.max(gapAcross, gapDown) >= spacing - EPSILON);
+            }
+        }
+    }
+
+    /**
+     * The child's top is at least the spacing below the bottom of its parent.
+     */
+    static void assertBelow(Point2D.Double[] positions, double[][] sizes, double spacing, int child, int parent) {
+        assertTrue("Node " + child + " at " + positions[child] + " isn't below its parent " + parent + " at " + positions[parent],
+                positions[child].y >= positions[parent].y + sizes[parent][1] + spacing - EPSILON);
+    }
+
+    static void assertStartsAtOrigin(Point2D.Double[] positions) {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        for (var position : positions) {
+            minX = Math.min(minX, position.x);
+            minY = Math.min(minY, position.y);
+        }
+        assertTrue("Layout starts at " + minX + ", " + minY, Math.abs(minX) < EPSILON && Math.abs(minY) < EPSILON);
+    }
+}
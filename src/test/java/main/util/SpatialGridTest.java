@@ -0,0 +1,109 @@
+package main.util;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SpatialGridTest {
+    private final SpatialGrid<String> grid = new SpatialGrid<>(100);
+
+    @Test
+    public void findsWhatIntersects() {
+        grid.put("a", new Rectangle(0, 0, 50, 50));
+        grid.put("b", new Rectangle(250, 250, 300, 300));
+        grid.put("c", new Rectangle(-500, -500, 10, 10));
+
+        assertEquals(Set.of("a"), grid.query(new Rectangle(40, 40, 20, 20)));
+        assertEquals(Set.of("a", "b"), grid.query(new Rectangle(0, 0, 300, 300)));
+        assertEquals(Set.of("c"), grid.query(new Rectangle(-505, -505, 10, 10)));
+        // Same cell as a, but not touching it.
+        assertTrue(grid.query(new Rectangle(60, 60, 10, 10)).isEmpty());
+    }
+
+    @Test
+    public void movingUpdatesTheCells() {
+        grid.put("a", new Rectangle(0, 0, 50, 50));
+        grid.put("a", new Rectangle(1000, 1000, 50, 50));
+
+        assertTrue(grid.query(new Rectangle(0, 0, 50, 50)).isEmpty());
+        assertEquals(Set.of("a"), grid.query(new Rectangle(1010, 1010, 5, 5)));
+        assertEquals(new Rectangle(1000, 1000, 50, 50), grid.getBounds("a"));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    public void removingForgetsIt() {
+        grid.put("a", new Rectangle(0, 0, 500, 500));
+        grid.put("b", new Rectangle(100, 100, 10, 10));
+        grid.remove("a");
+
+        assertFalse(grid.contains("a"));
+        assertNull(grid.getBounds("a"));
+        assertEquals(Set.of("b"), grid.query(new Rectangle(0, 0, 500, 500)));
+        grid.remove("b");
+        assertEquals(0, grid.size());
+        assertTrue(grid.query(new Rectangle(0, 0, 500, 500)).isEmpty());
+    }
+
+    @Test
+    public void boundsAreCopied() {
+        var bounds = new Rectangle(0, 0, 50, 50);
+        grid.put("a", bounds);
+        bounds.setLocation(1000, 1000);
+
+        assertEquals(Set.of("a"), grid.query(new Rectangle(0, 0, 10, 10)));
+    }
+
+    @Test
+    public void anyIntersectIgnoresTheGivenItem() {
+        grid.put("a", new Rectangle(0, 0, 50, 50));
+
+        assertFalse(grid.anyIntersect(new Rectangle(0, 0, 50, 50), "a"));
+        assertTrue(grid.anyIntersect(new Rectangle(0, 0, 50, 50), "b"));
+    }
+
+    @Test
+    public void hugeQueriesMatchSmallOnes() {
+        // Far more cells covered than are in use, so the query goes through the stored cells instead.
+        grid.put("a", new Rectangle(0, 0, 50, 50));
+        grid.put("b", new Rectangle(-2_000_000, 3_000_000, 50, 50));
+
+        assertEquals(Set.of("a", "b"), grid.query(new Rectangle(-100_000_000, -100_000_000, 200_000_000, 200_000_000)));
+        assertEquals(Set.of("a"), grid.query(new Rectangle(-1_000_000, -1_000_000, 2_000_000, 2_000_000)));
+    }
+
+    @Test
+    public void matchesCheckingEverything() {
+        var random = new Random(42);
+        var reference = new HashMap<String, Rectangle>();
+        for (int step = 0; step < 20_000; step++) {
+            String item = "item" + random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                grid.remove(item);
+                reference.remove(item);
+            } else {
+                var bounds = randomRectangle(random, 5_000);
+                grid.put(item, bounds);
+                reference.put(item, bounds);
+            }
+
+            var area = randomRectangle(random, random.nextBoolean() ? 5_000 : 500_000);
+            var expected = new HashSet<String>();
+            reference.forEach((key, value) -> {
+                if (value.intersects(area)) expected.add(key);
+            });
+            assertEquals(expected, grid.query(area));
+        }
+        assertEquals(reference.size(), grid.size());
+    }
+
+    private static Rectangle randomRectangle(Random random, int range) {
+        return new Rectangle(random.nextInt(range * 2) - range, random.nextInt(range * 2) - range, 1 + random.nextInt(range / 10), 1 + random.nextInt(range / 10));
+    }
+}